@@ -0,0 +1,311 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Decodes images on a pool of background threads and keeps them in a cache.
+ * Images are kept already scaled to the square they are drawn in, so drawing one is a copy,
+ * and the cache holds at most a set number of bytes of pixels, dropping the least recently
+ * used images first. JPEGs are read with subsampling, so only about the pixels needed are decoded.
+ *
+ * get returns straight away: the image if it is cached, or null after asking for it to be
+ * decoded, and the listener is told when it is ready so just that image can be drawn.
+ *
+ * Images wait to be decoded on a stack, so the one asked for most recently is decoded first, and
+ * asking again for one that is waiting moves it to the top. After scrolling, what is on screen now
+ * is decoded before what was on screen a moment ago, and retainWaiting drops what is no longer wanted.
+ */
+public class ImageService {
+
+    /**
+     * Told when an image that was asked for has been decoded, on a decode thread
+     */
+    public interface Listener {
+        /**
+         * @param file File name of the image
+         * @param size Size it was decoded at
+         */
+        void imageReady(String file, int size);
+    }
+
+    /**
+     * Where images come from, e.g. a thumbnail cache file in front of the image files
+     */
+    public interface Source {
+        /**
+         * Get an image if it can be had quickly, called on the thread asking for it
+         * @return The image, or null if it has to be decoded
+         */
+        BufferedImage cached(String file, int size);
+
+        /**
+         * Decode an image, called on a decode thread
+         * @return The image
+         * @throws IOException If the file could not be read or is not an image
+         */
+        BufferedImage decode(String file, int size) throws IOException;
+    }
+
+    /**
+     * Decodes image files directly, with nothing cached outside the service
+     */
+    public static final Source FILES = new Source() {
+        @Override
+        public BufferedImage cached(String file, int size) {
+            return null;
+        }
+
+        @Override
+        public BufferedImage decode(String file, int size) throws IOException {
+            return ImageService.decode(new File(file), size);
+        }
+    };
+
+    private long maxBytes;              //Most bytes of pixels kept in the cache
+    private final Source source;        //Where images come from
+    private final Listener listener;    //Told when images are ready
+    private final ExecutorService pool; //Decode threads
+    private final LinkedHashMap<String, BufferedImage> cache = new LinkedHashMap<>(64, 0.75f, true); //Decoded images in least recently used order
+    private final Set<String> pending = new HashSet<>(); //Images being decoded or waiting to be
+    private final ArrayDeque<String> waiting = new ArrayDeque<>(); //Images waiting to be decoded, most recently asked for first
+    private final Set<String> failed = new HashSet<>();  //Images that could not be read, so they are not tried again
+    private long cachedBytes;           //Bytes of pixels in the cache
+
+    /**
+     * Constructor
+     * @param maxBytes Most bytes of pixels to keep in the cache
+     * @param threads Number of images to decode at once
+     * @param listener Told when images are ready
+     */
+    public ImageService(long maxBytes, int threads, Listener listener) {
+        this(maxBytes, threads, FILES, listener);
+    }
+
+    /**
+     * Constructor
+     * @param maxBytes Most bytes of pixels to keep in the cache
+     * @param threads Number of images to decode at once
+     * @param source Where images come from
+     * @param listener Told when images are ready
+     */
+    public ImageService(long maxBytes, int threads, Source source, Listener listener) {
+        this.maxBytes = maxBytes;
+        this.source = source;
+        this.listener = listener;
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "image-decode");
+            thread.setDaemon(true); //Don't keep the program running after the window closes
+            return thread;
+        });
+    }
+
+    /**
+     * Get an image, asking for it to be decoded if it is not cached here or quickly had from the source
+     * @param file File name of the image
+     * @param size Width and height to scale the image to
+     * @return The image, or null if it is not ready yet or could not be read
+     */
+    public synchronized BufferedImage get(String file, int size) {
+        String key = key(file, size);
+        BufferedImage image = cache.get(key);
+        if(image == null && !pending.contains(key) && !failed.contains(key)) {
+            image = source.cached(file, size);
+            if(image != null) put(key, image);
+        }
+        if(image == null) request(file, size);
+        return image;
+    }
+
+    /**
+     * Ask for an image to be decoded into the cache, before any image asked for earlier,
+     * unless it is there already or being decoded
+     * @param file File name of the image
+     * @param size Width and height to scale the image to
+     */
+    public synchronized void request(String file, int size) {
+        String key = key(file, size);
+        if(cache.containsKey(key) || failed.contains(key)) return;
+        if(!pending.add(key)) { //Already asked for, move it to the top if it is still waiting
+            if(waiting.remove(key)) waiting.push(key);
+            return;
+        }
+        waiting.push(key);
+        pool.execute(this::loadNewest); //One run for each image, it decodes whichever is on top then
+    }
+
+    /**
+     * Stop waiting for images that are no longer wanted, e.g. thumbnails that have scrolled off screen.
+     * Images already being decoded are finished and cached.
+     * @param files File names of the images still wanted, at any size
+     */
+    public synchronized void retainWaiting(Set<String> files) {
+        for(Iterator<String> it = waiting.iterator(); it.hasNext();) {
+            String key = it.next();
+            if(files.contains(fileOf(key))) continue;
+            it.remove();
+            pending.remove(key);
+        }
+    }
+
+    /**
+     * Change the most bytes of pixels to keep, dropping the least recently used images if the cache is now over
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * @return True if the image could not be read, so get will never return it
+     */
+    public synchronized boolean isFailed(String file, int size) {
+        return failed.contains(key(file, size));
+    }
+
+    /**
+     * @return Bytes of pixels in the cache
+     */
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    /**
+     * @return Number of images in the cache
+     */
+    public synchronized int getCachedCount() {
+        return cache.size();
+    }
+
+    /**
+     * Decode the image on top of the waiting stack, on a pool thread
+     */
+    private void loadNewest() {
+        String key;
+        synchronized(this) {
+            key = waiting.poll();
+        }
+        if(key != null) //Null if images were dropped by retainWaiting
+            load(fileOf(key), sizeOf(key), key);
+    }
+
+    /**
+     * Decode an image on a pool thread, cache it and tell the listener
+     */
+    private void load(String file, int size, String key) {
+        BufferedImage image = null;
+        try {
+            image = source.decode(file, size);
+        } catch(IOException | RuntimeException e) {
+            //Remembered as failed below, and drawn as a broken image
+        }
+        synchronized(this) {
+            pending.remove(key);
+            if(image == null) failed.add(key);
+            else put(key, image);
+        }
+        listener.imageReady(file, size);
+    }
+
+    /**
+     * Add an image to the cache, dropping the least recently used images until it fits
+     */
+    private void put(String key, BufferedImage image) {
+        BufferedImage old = cache.put(key, image);
+        if(old != null) cachedBytes -= bytes(old);
+        cachedBytes += bytes(image);
+        evict();
+    }
+
+    /**
+     * Drop the least recently used images until the cache is within its limit
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, BufferedImage>> eldest = cache.entrySet().iterator();
+        while(cachedBytes > maxBytes && cache.size() > 1) { //Always keep the most recent image
+            cachedBytes -= bytes(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Read an image and scale it to a square.
+     * The reader skips rows and columns it does not need, which makes large JPEGs faster to read.
+     * @param file The image file
+     * @param size Width and height of the result
+     * @return The scaled image
+     * @throws IOException If the file could not be read or is not an image
+     */
+    public static BufferedImage decode(File file, int size) throws IOException {
+        BufferedImage source;
+        try(ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            if(in == null) throw new IOException("Cannot open " + file);
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if(!readers.hasNext()) throw new IOException("Not an image: " + file);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int subsample = Math.max(1, Math.min(reader.getWidth(0), reader.getHeight(0)) / size); //Keep at least size pixels each way
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsample, subsample, 0, 0);
+                source = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, size, size, null);
+        g.dispose();
+        return scaled;
+    }
+
+    /**
+     * @return Bytes of pixels in an image
+     */
+    private static long bytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    /**
+     * @return Cache key of an image at a size
+     */
+    private static String key(String file, int size) {
+        return size + ":" + file;
+    }
+
+    /**
+     * @return File name of the image a cache key is for
+     */
+    private static String fileOf(String key) {
+        return key.substring(key.indexOf(':') + 1);
+    }
+
+    /**
+     * @return Size of the image a cache key is for
+     */
+    private static int sizeOf(String key) {
+        return Integer.parseInt(key.substring(0, key.indexOf(':')));
+    }
+}
@@ -0,0 +1,157 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decodes the slides of a running show ahead of time, so changing slide only draws an image
+ * that is already decoded and scaled.
+ * Each time a slide is shown the next few slides in show order, wrapping round to the start
+ * like the show does, are asked for from an image service of their own, whose memory budget
+ * is separate from the thumbnails so the two don't push each other out.
+ * The service decodes the newest request first, so the slides are asked for farthest first and
+ * the slide being shown last, and slides the show has moved away from stop waiting.
+ *
+ * Keeps count of slides that were ready when they were shown (hits) and slides the show had to
+ * wait for (misses), and of how long each change of slide took, from the change until the slide was drawn.
+ */
+public class SlidePrefetcher {
+    private final int size;             //Size slides are decoded and drawn at
+    private final ImageService service; //Decodes and keeps the slides
+    private volatile int depth;         //Number of slides after the current one to decode ahead
+
+    private int lastIndex = -1;         //Index of the slide shown last, to tell a redraw from a change of slide
+    private String lastFile;            //File of the slide shown last
+    private String waitingFor;          //File of a slide being waited for, or null
+    private long transitionStart;       //System.nanoTime() when the slide being shown was changed to
+    private int hits;                   //Changes of slide where the slide was already decoded
+    private int misses;                 //Changes of slide that waited for the slide to be decoded
+    private long totalNanos;            //Time taken by all the changes of slide
+    private long maxNanos;              //Time taken by the slowest change of slide
+
+    /**
+     * Constructor
+     * @param size Size slides are decoded at
+     * @param depth Number of slides to decode ahead
+     * @param budgetBytes Most bytes of decoded slides to keep
+     * @param threads Number of slides to decode at once
+     * @param listener Told on a decode thread when a slide is ready
+     */
+    public SlidePrefetcher(int size, int depth, long budgetBytes, int threads, ImageService.Listener listener) {
+        this.size = size;
+        this.depth = depth;
+        this.service = new ImageService(budgetBytes, threads, listener);
+    }
+
+    /**
+     * Set how many slides are decoded ahead of the one showing
+     */
+    public void setDepth(int depth) {
+        this.depth = Math.max(0, depth);
+    }
+
+    /**
+     * @return Number of slides decoded ahead of the one showing
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Set the memory budget for decoded slides, dropping the least recently shown slides if it is now over
+     */
+    public void setBudget(long budgetBytes) {
+        service.setMaxBytes(budgetBytes);
+    }
+
+    /**
+     * Start showing a slide, and ask for the slides after it to be decoded.
+     * If the slide is returned, draw it and call endTransition; if not, call endTransition
+     * once it is ready and drawn.
+     * @param images Files of the slides in show order
+     * @param index Index of the slide to show
+     * @return The decoded slide, or null if the show has to wait for it
+     */
+    public synchronized BufferedImage beginTransition(List<String> images, int index) {
+        String file = images.get(index);
+        int ahead = Math.min(depth, images.size() - 1);
+        Set<String> wanted = new HashSet<>();
+        wanted.add(file);
+        for(int i = 1; i <= ahead; i++) //Wrap round to the start like the show does
+            wanted.add(images.get((index + i) % images.size()));
+        service.retainWaiting(wanted);
+        for(int i = ahead; i >= 1; i--) //Farthest first, so the nearest is decoded first
+            service.request(images.get((index + i) % images.size()), size);
+        BufferedImage image = service.get(file, size); //Asked for last, so decoded before the slides ahead
+
+        if(index != lastIndex || !file.equals(lastFile)) { //A new slide, not a redraw of the same one
+            lastIndex = index;
+            lastFile = file;
+            transitionStart = System.nanoTime();
+            if(image != null) hits++;
+            else misses++;
+            waitingFor = file;
+        }
+        return image;
+    }
+
+    /**
+     * Finish a change of slide once the slide has been drawn
+     * @param file File of the slide that was drawn
+     */
+    public synchronized void endTransition(String file) {
+        if(!file.equals(waitingFor)) return; //A redraw, or a slide the show has already moved on from
+        waitingFor = null;
+        long nanos = System.nanoTime() - transitionStart;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Get a decoded slide without counting it as shown
+     * @return The slide, or null if it is not decoded
+     */
+    public BufferedImage get(String file) {
+        return service.get(file, size);
+    }
+
+    /**
+     * @return Number of changes of slide where the slide was already decoded
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of changes of slide that waited for the slide to be decoded
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Clear the counts, e.g. when a new show starts
+     */
+    public synchronized void resetStats() {
+        hits = misses = 0;
+        totalNanos = maxNanos = 0;
+        lastIndex = -1;
+        lastFile = waitingFor = null;
+    }
+
+    /**
+     * @return A line describing the hits, misses and change of slide times
+     */
+    public synchronized String getReport() {
+        int shown = hits + misses;
+        return String.format("%d slides shown, %d prefetched, %d waited for; change of slide %.1f ms average, %.1f ms slowest; %d slides cached in %d MB",
+                shown, hits, misses, shown == 0 ? 0 : totalNanos / 1e6 / shown, maxNanos / 1e6,
+                service.getCachedCount(), service.getCachedBytes() >> 20);
+    }
+}
@@ -8,16 +8,25 @@
  * ID: 300447277
  */
 
-import java.time.Instant;
 import java.util.*;
 import ecs100.*;
 import java.awt.Color;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.swing.JSlider;
+import javax.swing.SwingUtilities;
 
 /**
  * This class contains the main method of the program. 
  * 
  * A SlideShow object represents the slideshow application and sets up the buttons in the UI. 
  * 
+ * The UI, the slide timer and the decode threads all call in on threads of their own, so the
+ * show and the selection are only changed, and the canvas only drawn, holding the lock on this.
+ * 
  * @author pondy
  */
 public class SlideShow {
@@ -27,13 +36,27 @@ public class SlideShow {
     public static final int MARGIN = 20;        // Distance of the editor slides from the edge of the canvas
     public static final int GAP = 10;           // gap between images when editing
     public static final int COLUMNS = 6;        // Number of columns of thumbnails
+    public static final int[] THUMBNAIL_SIZES = {50, 100, 200}; // Sizes thumbnails are made at, up to the largest preview size
+    public static final String THUMBNAIL_CACHE = "thumbnails.cache"; // File the thumbnails are kept in between runs
+    public static final long CACHE_BYTES = 128L << 20; // Most bytes of decoded thumbnails kept in memory
+    public static final int PREFETCH_DEPTH = 3; // Initial number of slides decoded ahead while the show runs
+    public static final int PREFETCH_MB = 32;   // Initial memory budget for decoded slides
     private int slideDelay = 1000; //1 second
 
-    private long startMillis = 0; //Timer point for the slideshow timer
     private List<String> images = new ArrayList<>();//  List of image file names.
     private int currentImage = -1;     // index of currently selected image.
+    private int scrollRow = 0;         // First row of thumbnails on screen in the editor
+    private JSlider scrollSlider;      // The scroll slider, moved when the editor scrolls some other way, or null if it wasn't found
+    private volatile int scrollSliderValue; // Value last put on the scroll slider, which comes back through doScroll
     private int lastImage = -1;
-    private boolean showRunning;      // flag signalling whether the slideshow is running or not
+    private volatile boolean showRunning; // flag signalling whether the slideshow is running or not, only changed holding the lock on this
+    private final ThumbnailStore thumbnails = openThumbnails(); //Thumbnails kept on disk, or null if the cache file can't be used
+    private final ImageService imageService = new ImageService(CACHE_BYTES, //Decodes images in the background
+            Runtime.getRuntime().availableProcessors(), thumbnails == null ? ImageService.FILES : thumbnails, this::imageReady);
+    private int thumbnailSize = closestThumbnailSize(); //Thumbnail size closest to the preview size
+    private final SlideTimer slideTimer = new SlideTimer(this::nextSlide); //Changes slide while the show runs
+    private final SlidePrefetcher slides = new SlidePrefetcher(LARGE_SIZE, PREFETCH_DEPTH, //Decodes the next slides while the show runs
+            (long)PREFETCH_MB << 20, 2, this::slideReady);
 
 
     /**
@@ -43,6 +66,30 @@ public class SlideShow {
         setupGUI();
     }
 
+    /**
+     * Open the thumbnail cache file
+     * @return The thumbnail store, or null if the file could not be opened, so thumbnails are decoded from the images every run
+     */
+    private static ThumbnailStore openThumbnails()
+    {
+        try {
+            return new ThumbnailStore(new File(THUMBNAIL_CACHE), THUMBNAIL_SIZES);
+        } catch(IOException e) {
+            UI.println("Thumbnails will not be kept: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Choose the thumbnail size for the preview size, the smallest that is not scaled up to draw
+     * @return One of THUMBNAIL_SIZES
+     */
+    private int closestThumbnailSize()
+    {
+        if(thumbnails == null) return THUMBNAIL_SIZES[THUMBNAIL_SIZES.length - 1]; //Decoding straight from the images, so always the same size
+        return thumbnails.closestSize(smallSize);
+    }
+
     /**
      * Initialises the UI window, and sets up the buttons. 
      */
@@ -52,7 +99,11 @@ public class SlideShow {
         UI.addButton("Run show (enter)",   this::runShow);
         UI.addButton("Edit show (enter)",    this::editShow);
         UI.addSlider("Preview size", 10, 100, 50, this::doPreviewSize);
+        UI.addSlider("Scroll (%)", 0, 100, 0, this::doScroll);
+        scrollSlider = lastSlider(UI.getFrame());
         UI.addSlider("Slide delay", 1, 20, 2, this::doSlideDelay);
+        UI.addSlider("Prefetch slides", 0, 10, PREFETCH_DEPTH, (val) -> slides.setDepth((int)val));
+        UI.addSlider("Prefetch memory (MB)", 4, 256, PREFETCH_MB, (val) -> slides.setBudget((long)val << 20));
         UI.addButton("remove (r)",       this::doRemove);
         UI.addButton("remove all",   this::doRemoveAll);
         UI.addButton("reverse",      this::doReverse);
@@ -86,58 +137,157 @@ public class SlideShow {
      * showRunning field is still true.
      * Cycles through the images, going back to the start when it gets to the end.
      * The currentImage field should always contain the index of the current image.
+     * The slide timer changes slides on its own thread, so this returns once the first slide is shown.
      */
-    public void runShow(){
-        if(showRunning) return;
+    public synchronized void runShow(){
+        if(showRunning || images.isEmpty()) return;
         showRunning = true;
-        while(showRunning)
-        {
-            if(Instant.now().toEpochMilli() - startMillis > slideDelay) {
-                startMillis = Instant.now().toEpochMilli();
-                display();
-                currentImage++;
-                if (currentImage >= images.size())
-                    currentImage = 0;
-            }
-            UI.sleep(10); //To avoid using too many cpu cycles
-        }
+        if(currentImage < 0 || currentImage >= images.size())
+            currentImage = 0;
+        slides.resetStats();
+        display();
+        slideTimer.start(slideDelay); //Returns straight away, the timer thread changes slides from here
+    }
+
+    /**
+     * Called by the slide timer, on its thread, when it is time for the next slide.
+     * Goes back to the start after the last image. Holds the lock, so a key press or editShow
+     * waits for the slide to be drawn, and a slide is never drawn over the editor.
+     */
+    private synchronized void nextSlide()
+    {
+        if(!showRunning || images.isEmpty()) return;
+        currentImage = (currentImage + 1) % images.size();
+        display();
     }
 
     /**
-     * Stop the show by changing showRunning to false.
+     * Stop the show by stopping the slide timer.
      * Redisplay the list of images, so they can be edited
      */
-    public void editShow(){
+    public synchronized void editShow(){
         if(!showRunning) return;
+        slideTimer.stop();
         showRunning = false;
-        if(currentImage > 0)
-            currentImage--; //Put the image selection on the last image displayed in the slideshow
-        display();
+        display(); //The selection is on the last image displayed in the slideshow
+        UI.printMessage(slides.getReport() + "; " + slideTimer.getReport());
     }
 
     /**
      * Display just the current slide if the show is running.
      * If the show is not running, display the list of images
-     * (as thumbnails) highlighting the current image
+     * (as thumbnails) highlighting the current image.
+     * Images that are still being decoded are drawn as placeholders, and drawn again when they are ready.
      */
-    public void display(){
+    public synchronized void display(){
         UI.clearGraphics();
         if(showRunning)
         {
-            UI.drawImage(images.get(currentImage), MARGIN, MARGIN, LARGE_SIZE, LARGE_SIZE);
+            imageService.retainWaiting(Collections.emptySet()); //No thumbnails are on screen
+            drawSlide();
         }
-        else //Edit mode
+        else //Edit mode, only the rows on screen
         {
-            for(int i = 0; i < images.size(); i++)
+            scrollRow = Math.max(0, Math.min(scrollRow, maxScrollRow())); //The show may have got shorter
+            int last = Math.min(images.size(), (scrollRow + visibleRows()) * COLUMNS);
+            Set<String> onScreen = new HashSet<>();
+            for(int i = scrollRow * COLUMNS; i < last; i++)
             {
-                int column = i % COLUMNS; // Calculate what column to place image in
-                int row = i / COLUMNS; // Calculate what row to place image in
-
-                double x = (column * (smallSize + GAP)) + MARGIN;
-                double y = (row * (smallSize + GAP)) + MARGIN;
-                UI.drawImage(images.get(i), x, y, smallSize, smallSize);
+                drawThumbnail(i, images.get(i));
+                onScreen.add(images.get(i));
             }
             drawSelectRect();
+            imageService.retainWaiting(onScreen); //Stop waiting for thumbnails that have scrolled off
+            showScrollPosition();
+        }
+    }
+
+    /**
+     * Draw the current slide if it has been decoded, or a placeholder until it is.
+     * The slides after it are decoded in the background while it is on screen.
+     */
+    private void drawSlide()
+    {
+        String file = images.get(currentImage);
+        BufferedImage image = slides.beginTransition(images, currentImage);
+        if(image == null)
+        {
+            UI.setColor(Color.lightGray); //Placeholder, drawn over by slideReady
+            UI.fillRect(MARGIN, MARGIN, LARGE_SIZE, LARGE_SIZE);
+            return;
+        }
+        UI.drawImage(image, MARGIN, MARGIN, LARGE_SIZE, LARGE_SIZE);
+        slides.endTransition(file);
+    }
+
+    /**
+     * Called by the prefetcher, on a decode thread, when a slide is ready.
+     * Draws it if it is the slide the show is waiting for.
+     * @param file File name of the slide
+     * @param size Size the slide was decoded at
+     */
+    private synchronized void slideReady(String file, int size)
+    {
+        if(!showRunning || currentImage < 0 || currentImage >= images.size() || !images.get(currentImage).equals(file)) return;
+        BufferedImage image = slides.get(file);
+        if(image == null) return; //Could not be read, the placeholder stays
+        UI.drawImage(image, MARGIN, MARGIN, LARGE_SIZE, LARGE_SIZE);
+        slides.endTransition(file);
+    }
+
+    /**
+     * Draw the thumbnail of an image in its place in the editor
+     * @param index Index of the image in the show
+     * @param file File name of the image
+     */
+    private void drawThumbnail(int index, String file)
+    {
+        drawImage(file, thumbnailSize, tileX(index), tileY(index), smallSize);
+    }
+
+    /**
+     * Draw an image from the image service, or a placeholder if it is not decoded yet
+     * @param file File name of the image
+     * @param decodeSize Size to decode the image at
+     * @param x Left of the image
+     * @param y Top of the image
+     * @param size Width and height to draw the image
+     */
+    private void drawImage(String file, int decodeSize, double x, double y, double size)
+    {
+        BufferedImage image = imageService.get(file, decodeSize);
+        if(image != null)
+        {
+            UI.drawImage(image, x, y, size, size);
+            return;
+        }
+        UI.setColor(Color.lightGray); //Placeholder
+        UI.fillRect(x, y, size, size);
+        if(imageService.isFailed(file, decodeSize)) //Broken image, cross it out
+        {
+            UI.setColor(Color.red);
+            UI.setLineWidth(2);
+            UI.drawLine(x, y, x + size, y + size);
+            UI.drawLine(x + size, y, x, y + size);
+        }
+    }
+
+    /**
+     * Called by the image service, on a decode thread, when a thumbnail is ready.
+     * Draws just the thumbnails showing that image.
+     * @param file File name of the image
+     * @param size Size the image was decoded at
+     */
+    private synchronized void imageReady(String file, int size)
+    {
+        if(showRunning || size != thumbnailSize) return; //Not on screen, or made for an earlier preview size
+        int first = scrollRow * COLUMNS;
+        int last = Math.min(images.size(), first + visibleRows() * COLUMNS);
+        for(int i = first; i < last; i++) //Only the thumbnails on screen
+        {
+            if(!images.get(i).equals(file)) continue;
+            drawThumbnail(i, file);
+            if(i == currentImage) drawSelectRect();
         }
     }
 
@@ -149,11 +299,17 @@ public class SlideShow {
      * Select the image at the specified index.
      * @param index Index of the image to select
      */
-    public void selectImage(int index)
+    public synchronized void selectImage(int index)
     {
         if(index < 0 || index >= images.size() || !checkAllowAction()) return;;
         int oldIndex = currentImage;
         currentImage = index;
+        if(!isOnScreen(index)) //Off screen, so scroll to it. One cut off at the bottom stays put, under the mouse
+        {
+            scrollToShow(index);
+            display();
+            return;
+        }
         eraseSelectRect(oldIndex);
         drawSelectRect();
     }
@@ -163,13 +319,10 @@ public class SlideShow {
      */
     private void drawSelectRect()
     {
-        if(currentImage == -1) return;
-
-        int column = currentImage % COLUMNS; // Calculate what column to place image in
-        int row = currentImage / COLUMNS; // Calculate what row to place image in
+        if(currentImage == -1 || !isOnScreen(currentImage)) return;
 
-        double x = (column * (smallSize + GAP)) + MARGIN;
-        double y = (row * (smallSize + GAP)) + MARGIN;
+        double x = tileX(currentImage);
+        double y = tileY(currentImage);
 
         UI.setColor(Color.red);
         UI.setLineWidth(2);
@@ -182,26 +335,159 @@ public class SlideShow {
      */
     private void eraseSelectRect(int index)
     {
-        int column = index % COLUMNS; // Calculate what column to place image in
-        int row = index / COLUMNS; // Calculate what row to place image in
+        if(index == -1 || !isOnScreen(index)) return;
 
-        double x = (column * (smallSize + GAP)) + MARGIN;
-        double y = (row * (smallSize + GAP)) + MARGIN;
+        double x = tileX(index);
+        double y = tileY(index);
 
         UI.setColor(Color.white);
         UI.setLineWidth(2);
         UI.drawRect(x - 2, y  - 2, smallSize + 4, smallSize + 4); //Draw white rect in place of red one
     }
 
+    /**
+     * @return Left of the thumbnail of an image in the editor
+     */
+    private double tileX(int index)
+    {
+        return (index % COLUMNS) * (smallSize + GAP) + MARGIN;
+    }
+
+    /**
+     * @return Top of the thumbnail of an image in the editor, counted from the first row on screen
+     */
+    private double tileY(int index)
+    {
+        return (index / COLUMNS - scrollRow) * (smallSize + GAP) + MARGIN;
+    }
+
+    /**
+     * @return Number of rows of thumbnails the canvas shows, counting a row cut off at the bottom
+     */
+    private int visibleRows()
+    {
+        return Math.max(1, (UI.getCanvasHeight() - MARGIN) / (smallSize + GAP) + 1);
+    }
+
+    /**
+     * @return Number of rows of thumbnails that fit on the canvas whole
+     */
+    private int wholeRows()
+    {
+        return Math.max(1, (UI.getCanvasHeight() - MARGIN) / (smallSize + GAP));
+    }
+
+    /**
+     * @return Last row that can be the first on screen, so the last row of the show sits at the bottom
+     */
+    private int maxScrollRow()
+    {
+        int rows = (images.size() + COLUMNS - 1) / COLUMNS;
+        return Math.max(0, rows - wholeRows());
+    }
+
+    /**
+     * @return True if any of an image's thumbnail is on screen in the editor
+     */
+    private boolean isOnScreen(int index)
+    {
+        int row = index / COLUMNS;
+        return row >= scrollRow && row < scrollRow + visibleRows();
+    }
+
+    /**
+     * Scroll the editor so the whole of an image's thumbnail is on screen, without drawing
+     * @param index Index of the image
+     * @return True if it scrolled, so the editor needs drawing again
+     */
+    private boolean scrollToShow(int index)
+    {
+        if(index < 0) return false;
+        int row = index / COLUMNS;
+        int oldRow = scrollRow;
+        if(row < scrollRow)
+            scrollRow = row;
+        else if(row >= scrollRow + wholeRows())
+            scrollRow = row - wholeRows() + 1;
+        return scrollRow != oldRow;
+    }
+
+    /**
+     * Scroll the editor to a row and draw it, if it is not there already
+     * @param row Row to have first on screen
+     */
+    private void scrollTo(int row)
+    {
+        row = Math.max(0, Math.min(row, maxScrollRow()));
+        if(row == scrollRow) return;
+        scrollRow = row;
+        display();
+    }
+
+    /**
+     * Move the scroll slider to where the editor is scrolled to, after scrolling with the keys or the
+     * selection, so the next drag of the slider starts from there instead of jumping back
+     */
+    private void showScrollPosition()
+    {
+        int max = maxScrollRow();
+        int value = max == 0 ? 0 : (int)Math.round(100.0 * scrollRow / max);
+        if(scrollSlider == null || value == scrollSliderValue) return;
+        scrollSliderValue = value;
+        SwingUtilities.invokeLater(() -> scrollSlider.setValue(value)); //Swing components are only changed on its thread
+    }
+
+    /**
+     * Find the slider added to the UI last, as ecs100 doesn't give its sliders out
+     * @param container Container to look through, and the containers inside it
+     * @return The slider, or null if there are none
+     */
+    private static JSlider lastSlider(Container container)
+    {
+        JSlider last = null;
+        for(Component component : container.getComponents())
+        {
+            if(component instanceof JSlider)
+                last = (JSlider)component;
+            else if(component instanceof Container)
+            {
+                JSlider inside = lastSlider((Container)component);
+                if(inside != null) last = inside;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Scroll the editor so the selected image is on screen, and draw it
+     */
+    private void displaySelection()
+    {
+        scrollToShow(currentImage);
+        display();
+    }
+
+    /**
+     * Callback for moving the UI slider for scrolling.
+     * Scrolls the editor through the rows of thumbnails
+     * @param val Value of the slider, from 0-100, as a percentage of the way down the show
+     */
+    private synchronized void doScroll(double val)
+    {
+        if(showRunning || (int)val == scrollSliderValue) return; //Not moved by the user, or moved back to where the editor is
+        scrollSliderValue = (int)val;
+        scrollTo((int)Math.round(val / 100 * maxScrollRow()));
+    }
+
     /**
      * Callback for moving the UI slider for slide delay.
      * Changes the delay between slides
      * @param val Value of the slider, from 1-100
      */
-    private void doSlideDelay(double val)
+    private synchronized void doSlideDelay(double val)
     {
         slideDelay = (int)val * 1000; //Set delay
-        startMillis = Instant.now().toEpochMilli() - slideDelay; //Reset time
+        slideTimer.setPeriod(slideDelay); //Next slide one new delay from now
         display();
     }
 
@@ -211,16 +497,17 @@ public class SlideShow {
      * Changes the size of the image previews in the editor mode
      * @param val Value of the slider, from 10-100
      */
-    private void doPreviewSize(double val)
+    private synchronized void doPreviewSize(double val)
     {
         smallSize = 2 * (int)val;
+        thumbnailSize = closestThumbnailSize();
         display();
     }
 
     /**
      * Remove all images from the slideshow and clear the selection
      */
-    private void doRemoveAll() {
+    private synchronized void doRemoveAll() {
         if(!checkAllowAction()) return;
         currentImage = -1;
         images.clear();
@@ -230,7 +517,7 @@ public class SlideShow {
     /**
      * Remove the currently selected image from the slideshow
      */
-    private void doRemove() {
+    private synchronized void doRemove() {
         if(!checkAllowAction() || !isValidSelection()) return;
 
         images.remove(currentImage);
@@ -239,35 +526,35 @@ public class SlideShow {
             currentImage = -1; //Clear selection
         if(currentImage >= images.size()) //If the selection is past the end of the image list
             currentImage = images.size() - 1; //Select the last element
-        display();
+        displaySelection();
     }
 
     /**
      * Reverse the order of the slideshow images
      */
-    private void doReverse()
+    private synchronized void doReverse()
     {
         if(!checkAllowAction()) return;
         currentImage = 0; //Clear selection
         Collections.reverse(images); //Reverse images
-        display(); //Redraw
+        displaySelection(); //Redraw
     }
 
     /**
      * Shuffle order of the slideshow images
      */
-    private void doShuffle()
+    private synchronized void doShuffle()
     {
         if(!checkAllowAction()) return;
         currentImage = 0; //Clear selection
         Collections.shuffle(images); //Shuffle images
-        display(); //Redraw
+        displaySelection(); //Redraw
     }
 
     /**
      * Move the current image one space to the left in the slideshow
      */
-    private void doMoveLeft()
+    private synchronized void doMoveLeft()
     {
         if(!checkAllowAction() || !isValidSelection()) return; //Check parameters are valid
         if(currentImage == 0) //Ensure an out of bounds exception doesn't occur
@@ -278,13 +565,13 @@ public class SlideShow {
         String tempImage = images.get(currentImage); //Get the image path
         images.remove(currentImage); //Remove it from the list
         images.add(--currentImage, tempImage); //Add it at the new location and update the selection
-        display();
+        displaySelection();
     }
 
     /**
      * Move the current image one space to the right in the slideshow
      */
-    private void doMoveRight()
+    private synchronized void doMoveRight()
     {
         if(!checkAllowAction() || !isValidSelection()) return; //Check parameters are valid
         if(currentImage == images.size() - 1) //Ensure an out of bounds exception doesn't occur
@@ -295,31 +582,31 @@ public class SlideShow {
         String tempImage = images.get(currentImage); //Get the image path
         images.remove(currentImage); //Remove it from the list
         images.add(++currentImage, tempImage); //Add it at the new location and update the selection
-        display();
+        displaySelection();
     }
 
     /**
      * Move the current image to the start of the list in the slideshow
      */
-    private void doMoveStart()
+    private synchronized void doMoveStart()
     {
         if(!checkAllowAction() || !isValidSelection()) return; //Check parameters are valid
         String tempImage = images.get(currentImage); //Get the image path
         images.remove(currentImage); //Remove it from the list
         images.add(currentImage = 0, tempImage); //Add it at the new location and update the selection
-        display();
+        displaySelection();
     }
 
     /**
      * Move the current image to the end of the list in the slideshow
      */
-    private void doMoveEnd()
+    private synchronized void doMoveEnd()
     {
         if(!checkAllowAction() || !isValidSelection()) return; //Check parameters are valid
         String tempImage = images.get(currentImage); //Get the image path
         images.remove(currentImage); //Remove it from the list
         images.add(currentImage = images.size(), tempImage); //Add it at the new location and update the selection
-        display();
+        displaySelection();
     }
 
     /**
@@ -328,10 +615,14 @@ public class SlideShow {
     private void doAddAfter()
     {
         if(showRunning || (!isValidSelection() && currentImage != -1)) return; //Check parameters are valid
-        String file = UIFileChooser.open();
+        String file = UIFileChooser.open(); //Waits for the user, so the lock is only taken once a file is chosen
         if(file == null) return;
-        images.add(currentImage == -1 ? 0 : ++currentImage, file);
-        display();
+        synchronized(this)
+        {
+            if(showRunning || (!isValidSelection() && currentImage != -1)) return; //Changed while the chooser was open
+            images.add(currentImage == -1 ? 0 : ++currentImage, file);
+            displaySelection();
+        }
     }
 
     /**
@@ -340,10 +631,14 @@ public class SlideShow {
     private void doAddBefore()
     {
         if(!checkAllowAction() || !isValidSelection()) return; //Check parameters are valid
-        String file = UIFileChooser.open();
+        String file = UIFileChooser.open(); //Waits for the user, so the lock is only taken once a file is chosen
         if(file == null) return;
-        images.add(currentImage, file);
-        display();
+        synchronized(this)
+        {
+            if(!checkAllowAction() || !isValidSelection()) return; //Changed while the chooser was open
+            images.add(currentImage, file);
+            displaySelection();
+        }
     }
 
     /**
@@ -380,6 +675,20 @@ public class SlideShow {
      * works in both editing the list and in the slide show.
      */  
     public void doKey(String key)
+    {
+        if(key.equals("a")) //These open the file chooser, and take the lock themselves once a file is chosen
+            doAddAfter();
+        else if(key.equals("b"))
+            doAddBefore();
+        else
+            doShowKey(key);
+    }
+
+    /**
+     * Interprets every key press except the ones that open the file chooser, holding the lock
+     * so the selection doesn't change under the slide timer or the decode threads.
+     */
+    private synchronized void doShowKey(String key)
     {
         boolean isSelectKey = false; //If the key pressed was a valid show/edit key
         int originalSelection = currentImage; //Old selection, needed if selection is changed
@@ -415,14 +724,14 @@ public class SlideShow {
             currentImage = images.size() - 1;
             isSelectKey = true;
         }
+        else if (key.equals("Page Up") && !showRunning) //Scroll the editor a screen at a time
+            scrollTo(scrollRow - wholeRows());
+        else if (key.equals("Page Down") && !showRunning)
+            scrollTo(scrollRow + wholeRows());
         else if(key.equals("Comma")) //Lower case <
             doMoveLeft();
         else if(key.equals("Period")) //Lower case <
             doMoveRight();
-        else if(key.equals("a"))
-            doAddAfter();
-        else if(key.equals("b"))
-            doAddBefore();
         else if(key.equals("e"))
             doMoveEnd();
         else if(key.equals("s"))
@@ -438,13 +747,18 @@ public class SlideShow {
         }
 
         if (isSelectKey && !showRunning) { //If the show is not running and the user pressed a valid edit key
-            //Move selection
-            eraseSelectRect(originalSelection);
-            drawSelectRect();
+            //Move selection, or move the grid if the selection went off screen
+            if(scrollToShow(currentImage))
+                display();
+            else
+            {
+                eraseSelectRect(originalSelection);
+                drawSelectRect();
+            }
         }
         else if(isSelectKey && showRunning) //If the show is running and the user pressed a valid show key
         {
-            startMillis = Instant.now().toEpochMilli(); //Reset timer
+            slideTimer.reset(); //Next slide one delay from now
             display(); //Redisplay show image
         }
     }
@@ -455,12 +769,12 @@ public class SlideShow {
      * @param x Mouse position X
      * @param y Mouse position Y
      */
-    private void doMouse(String action, double x, double y)
+    private synchronized void doMouse(String action, double x, double y)
     {
         if(!checkAllowAction()) return;
         if(x > MARGIN + (COLUMNS * (smallSize + GAP))) return; //Ensure mouse is over images in the x direction, y direction is not important because images fill downwards
         int xIndex = (int)(x - MARGIN) / (smallSize + GAP); //Index offset for the x position of the mouse
-        int yIndex = (int)(y - MARGIN) / (smallSize + GAP) * COLUMNS; //Index offset for the y position of the mouse
+        int yIndex = ((int)(y - MARGIN) / (smallSize + GAP) + scrollRow) * COLUMNS; //Index offset for the y position of the mouse, from the first row on screen
         int index = xIndex + yIndex;
 
         if(index < 0 || index >= images.size()) return;
@@ -487,7 +801,7 @@ public class SlideShow {
     /**
      * A method that adds a bunch of names to the list of images, for testing.
      */
-    public void setTestList(){
+    public synchronized void setTestList(){
         if (showRunning) return;
         String[] names = new String[] {"Atmosphere.jpg", "BachalpseeFlowers.jpg",
                                        "BoraBora.jpg", "Branch.jpg", "DesertHills.jpg",
@@ -0,0 +1,146 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changes slide at fixed times while a show runs, on a scheduler thread that sleeps between slides
+ * instead of checking the clock over and over.
+ * Each change is scheduled for the next multiple of the delay after the timer was started or reset,
+ * rather than a delay after the last change, so being late for one change doesn't make the rest late.
+ *
+ * Keeps count of how late each change ran after the time it was due (drift).
+ */
+public class SlideTimer {
+    private final Runnable tick;                     //Changes the slide
+    private final ScheduledExecutorService scheduler; //Runs tick when it is due
+
+    private ScheduledFuture<?> next;    //The next change, or null if stopped
+    private int generation;             //Changed by reset and stop, so a change scheduled before them doesn't run
+    private long periodNanos;           //Time between changes
+    private long originNanos;           //System.nanoTime() the changes are counted from
+    private long count;                 //Number of changes since the origin, to work out when the next is due
+    private int ticks;                  //Changes run since the timer was started
+    private long totalDriftNanos;       //How late all the changes ran
+    private long maxDriftNanos;         //How late the latest of the changes ran
+
+    /**
+     * Constructor
+     * @param tick Called on the scheduler thread each time the slide should change
+     */
+    public SlideTimer(Runnable tick) {
+        this.tick = tick;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "slide-timer");
+            thread.setDaemon(true); //Don't keep the program running after the window closes
+            return thread;
+        });
+    }
+
+    /**
+     * Start changing slide, the first change one delay from now, and clear the drift counts
+     * @param periodMillis Time between changes
+     */
+    public synchronized void start(long periodMillis) {
+        ticks = 0;
+        totalDriftNanos = maxDriftNanos = 0;
+        periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        reset();
+    }
+
+    /**
+     * Start counting the delay again from now, e.g. after the user changes slide, unless the timer is stopped
+     */
+    public synchronized void reset() {
+        if(periodNanos == 0) return; //Stopped
+        if(next != null) next.cancel(false);
+        generation++;
+        originNanos = System.nanoTime();
+        count = 0;
+        schedule();
+    }
+
+    /**
+     * Change the time between slides, counted from now, unless the timer is stopped
+     * @param periodMillis Time between changes
+     */
+    public synchronized void setPeriod(long periodMillis) {
+        if(periodNanos == 0) return; //Stopped, start sets it
+        periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        reset();
+    }
+
+    /**
+     * Stop changing slide. A change already running finishes, but no more are started.
+     */
+    public synchronized void stop() {
+        if(next != null) next.cancel(false);
+        generation++;
+        next = null;
+        periodNanos = 0;
+    }
+
+    /**
+     * @return True if the timer is changing slides
+     */
+    public synchronized boolean isRunning() {
+        return periodNanos != 0;
+    }
+
+    /**
+     * Schedule the next change for the next multiple of the delay from the origin
+     */
+    private void schedule() {
+        count++;
+        long due = originNanos + count * periodNanos;
+        int scheduledIn = generation;
+        next = scheduler.schedule(() -> run(due, scheduledIn), due - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Run a change on the scheduler thread and schedule the one after it
+     * @param due System.nanoTime() the change was due
+     * @param scheduledIn Generation the change was scheduled in
+     */
+    private void run(long due, int scheduledIn) {
+        synchronized(this) {
+            if(scheduledIn != generation) return; //Stopped or reset while waiting to run
+            long drift = Math.max(0, System.nanoTime() - due);
+            ticks++;
+            totalDriftNanos += drift;
+            maxDriftNanos = Math.max(maxDriftNanos, drift);
+            while(originNanos + (count + 1) * periodNanos <= System.nanoTime())
+                count++; //Skip changes that are already past, rather than running them all at once
+            schedule();
+        }
+        tick.run(); //Outside the lock, so stop can be called while the slide is drawn
+    }
+
+    /**
+     * @return Number of changes since the timer was started
+     */
+    public synchronized int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return Greatest time a change ran after it was due, in nanoseconds
+     */
+    public synchronized long getMaxDriftNanos() {
+        return maxDriftNanos;
+    }
+
+    /**
+     * @return A line describing how late the changes of slide ran
+     */
+    public synchronized String getReport() {
+        return String.format("%d timed changes, %.2f ms late on average, %.2f ms latest",
+                ticks, ticks == 0 ? 0 : totalDriftNanos / 1e6 / ticks, maxDriftNanos / 1e6);
+    }
+}
@@ -0,0 +1,394 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thumbnails of images at a few fixed sizes, made once for each file and kept in a single cache file.
+ * The cache file is memory-mapped, so opening it only reads the index of which files it holds and checks they are unchanged, and
+ * a thumbnail is a copy of its pixels out of the mapping, with no image file to open or decode.
+ * A file's thumbnails are kept for its path, and are made again if its modified time or length changes.
+ *
+ * Cache layout: magic, version, the number of sizes and each size, then one entry for each file:
+ * the length of the rest of the entry, the path (length and UTF-8 bytes), the modified time, the file
+ * length, and for each size the thumbnail as raw RGB, three bytes a pixel, row by row.
+ * Entries are only ever added, so a file that changes leaves its old entry behind. When the cache is opened
+ * and more than COMPACT_PERCENT of it is entries that were replaced or whose files have changed or gone,
+ * the live entries are copied to a new file that is moved over the old one, before any of it is mapped.
+ * An entry cut short, by the program stopping while writing it, is dropped when the cache is opened.
+ * A mapping can be at most 2GB, so the file is mapped in segments of up to SEGMENT_BYTES, each holding whole entries.
+ *
+ * Implements ImageService.Source, so an image service of thumbnails reads from the cache straight away
+ * and only decodes the files that are not in it.
+ */
+public class ThumbnailStore implements ImageService.Source {
+    private static final int MAGIC = 0x53535443;   //"SSTC", marks a thumbnail cache file
+    private static final int VERSION = 1;          //Version of the cache layout
+    private static final long SEGMENT_BYTES = 1L << 30; //Most bytes in one mapping of the file
+    private static final int COMPACT_PERCENT = 25; //Share of the file that can be dead entries before it is compacted
+
+    private final File file;                //The cache file
+    private final int[] sizes;              //Thumbnail sizes, smallest first
+    private final int pixelBytes;           //Bytes of all the thumbnails of one file
+    private FileChannel channel;            //The cache file, open for reading and adding entries
+    private final Map<String, long[]> index = new HashMap<>(); //Path to {segment, offset of pixels in it, modified time, length}
+    private final List<MappedByteBuffer> segments = new ArrayList<>(); //Mappings of the file, the last one grows as entries are added
+    private final List<Long> segmentStarts = new ArrayList<>(); //Offset in the file of each segment
+    private long end;                       //Length of the complete entries, where the next entry goes
+    private long deadBytes;                 //Bytes of the entries found on opening that will never be used again
+
+    /**
+     * Open a cache file, making a new one if it is missing or made for other sizes, and compacting it if
+     * too much of it is dead entries
+     * @param file The cache file
+     * @param sizes Thumbnail sizes, smallest first
+     * @throws IOException If the cache could not be read or written
+     */
+    public ThumbnailStore(File file, int... sizes) throws IOException {
+        this.file = file;
+        this.sizes = sizes.clone();
+        int bytes = 0;
+        for(int size : sizes) bytes += size * size * 3;
+        this.pixelBytes = bytes;
+
+        open();
+        if(deadBytes * 100 > end * COMPACT_PERCENT) { //Nothing is mapped yet, and a mapped file can't be replaced on every system
+            compact();
+            open();
+        }
+        for(int i = 0; i < segmentStarts.size(); i++) {
+            long start = segmentStarts.get(i);
+            long stop = i + 1 < segmentStarts.size() ? segmentStarts.get(i + 1) : end;
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start, stop - start));
+        }
+    }
+
+    /**
+     * Open the cache file and read its index, starting it again if it is not a cache for these sizes.
+     * Nothing is mapped until the cache is known not to need compacting.
+     */
+    private void open() throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if(!readIndex()) { //New, or made for other sizes, start again
+            index.clear();
+            segmentStarts.clear();
+            deadBytes = 0;
+            channel.truncate(0);
+            ByteBuffer header = header();
+            write(channel, header, 0);
+            end = header.capacity();
+            segmentStarts.add(0L);
+        }
+        channel.truncate(end); //Drop an entry that was cut short
+    }
+
+    /**
+     * Read the header and the index of the entries, reading only the start of each entry and skipping its pixels.
+     * Entries are put in segments the same way add does, so each segment holds whole entries.
+     * Entries for files that have changed or gone, and entries replaced by a later one for the same file, are counted as dead.
+     * @return False if the file is not a cache for these sizes
+     */
+    private boolean readIndex() throws IOException {
+        index.clear();
+        segmentStarts.clear();
+        deadBytes = 0;
+        long size = channel.size();
+        int headerBytes = 12 + sizes.length * 4;
+        if(size < headerBytes) return false;
+        ByteBuffer header = ByteBuffer.allocate(headerBytes);
+        readFully(header, 0);
+        header.flip();
+        if(!header.equals(header())) return false;
+
+        segmentStarts.add(0L);
+        long start = 0;                 //Offset in the file of the last segment
+        long position = headerBytes;    //Offset in the file of the next entry
+        ByteBuffer head = ByteBuffer.allocate(6);
+        while(position + head.capacity() <= size) {
+            head.clear();
+            readFully(head, position);
+            int length = head.getInt(0);
+            int pathLength = head.getShort(4) & 0xFFFF;
+            if(length != 2 + pathLength + 16 + pixelBytes || position + 4 + length > size) break; //Cut short
+            ByteBuffer info = ByteBuffer.allocate(pathLength + 16);
+            readFully(info, position + 6);
+            if(position + 4 + length - start > SEGMENT_BYTES) { //Would not fit in the last segment, so it starts the next one
+                start = position;
+                segmentStarts.add(start);
+            }
+            String path = new String(info.array(), 0, pathLength, StandardCharsets.UTF_8);
+            long[] replaced = index.put(path, new long[] {segmentStarts.size() - 1, position - start + 6 + pathLength + 16, info.getLong(pathLength), info.getLong(pathLength + 8)});
+            if(replaced != null) deadBytes += 4 + length; //Same path, so the same length
+            position += 4 + length;
+        }
+        end = position;
+
+        for(Iterator<Map.Entry<String, long[]>> it = index.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, long[]> entry = it.next();
+            File source = new File(entry.getKey());
+            if(entry.getValue()[2] != source.lastModified() || entry.getValue()[3] != source.length()) {
+                deadBytes += entryBytes(entry.getKey());
+                it.remove();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fill a buffer from the cache file
+     * @param buffer Buffer to fill
+     * @param position Offset in the file to read from
+     * @throws IOException If the file ends first
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if(read < 0) throw new EOFException(file.getPath());
+            position += read;
+        }
+    }
+
+    /**
+     * Write the live entries to a new file next to the cache, and move it over the cache.
+     * Only called before the cache is mapped, so the pixels are read from the channel and the cache file has no mapping when it is replaced.
+     */
+    private void compact() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try(FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = header();
+            long position = write(out, header, 0);
+            ByteBuffer pixels = ByteBuffer.allocate(pixelBytes);
+            for(Map.Entry<String, long[]> entry : index.entrySet()) {
+                long[] info = entry.getValue();
+                pixels.clear();
+                readFully(pixels, segmentStarts.get((int) info[0]) + info[1]);
+                byte[] bytes = entry(entry.getKey().getBytes(StandardCharsets.UTF_8), info[2], info[3], pixels.array());
+                position = write(out, ByteBuffer.wrap(bytes), position);
+            }
+        } catch(IOException e) {
+            temp.delete();
+            throw e;
+        }
+        channel.close();
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The header of a cache for these sizes, ready to write
+     */
+    private ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(12 + sizes.length * 4);
+        header.putInt(MAGIC).putInt(VERSION).putInt(sizes.length);
+        for(int size : sizes) header.putInt(size);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * @return Thumbnail sizes, smallest first
+     */
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+
+    /**
+     * Choose the thumbnail size to draw at a size: the smallest that is at least as big, so
+     * thumbnails are only ever scaled down, or the largest if none are
+     * @param drawSize Size the thumbnail will be drawn
+     * @return One of the thumbnail sizes
+     */
+    public int closestSize(int drawSize) {
+        for(int size : sizes)
+            if(size >= drawSize) return size;
+        return sizes[sizes.length - 1];
+    }
+
+    /**
+     * @return Number of files with thumbnails in the cache
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Get a thumbnail from the cache, without decoding anything
+     * @param file File name of the image
+     * @param size One of the thumbnail sizes
+     * @return The thumbnail, or null if the file has none in the cache or has changed since they were made
+     */
+    @Override
+    public BufferedImage cached(String file, int size) {
+        int which = indexOfSize(size);
+        if(which < 0) return null;
+        File source = new File(file);
+        long[] entry;
+        synchronized(this) {
+            entry = index.get(source.getAbsolutePath());
+            if(entry == null || entry[2] != source.lastModified() || entry[3] != source.length()) return null;
+        }
+
+        int offset = 0;
+        for(int i = 0; i < which; i++) offset += sizes[i] * sizes[i] * 3;
+        byte[] bytes = read(entry, offset, size * size * 3);
+
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        int[] rgb = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for(int i = 0, b = 0; i < rgb.length; i++, b += 3)
+            rgb[i] = (bytes[b] & 0xFF) << 16 | (bytes[b + 1] & 0xFF) << 8 | (bytes[b + 2] & 0xFF);
+        return image;
+    }
+
+    /**
+     * Get a thumbnail, making every size of thumbnail for the file and adding them to the cache if they are not there.
+     * @param file File name of the image
+     * @param size One of the thumbnail sizes
+     * @return The thumbnail
+     * @throws IOException If the image could not be read
+     */
+    @Override
+    public BufferedImage decode(String file, int size) throws IOException {
+        BufferedImage image = cached(file, size);
+        if(image != null) return image;
+
+        File source = new File(file);
+        long modified = source.lastModified(), length = source.length();
+        BufferedImage[] thumbnails = new BufferedImage[sizes.length];
+        thumbnails[sizes.length - 1] = ImageService.decode(source, sizes[sizes.length - 1]);
+        for(int i = sizes.length - 2; i >= 0; i--) //Each size from the one above it, which looks better than one big step
+            thumbnails[i] = scale(thumbnails[i + 1], sizes[i]);
+        add(source.getAbsolutePath(), modified, length, thumbnails);
+        return thumbnails[indexOfSize(size)];
+    }
+
+    /**
+     * Add a file's thumbnails to the end of the cache and map them
+     */
+    private synchronized void add(String path, long modified, long length, BufferedImage[] thumbnails) throws IOException {
+        byte[] pixels = new byte[pixelBytes];
+        int b = 0;
+        for(BufferedImage thumbnail : thumbnails) {
+            int[] rgb = ((DataBufferInt) thumbnail.getRaster().getDataBuffer()).getData();
+            for(int pixel : rgb) {
+                pixels[b++] = (byte) (pixel >> 16);
+                pixels[b++] = (byte) (pixel >> 8);
+                pixels[b++] = (byte) pixel;
+            }
+        }
+        byte[] entry = entry(path.getBytes(StandardCharsets.UTF_8), modified, length, pixels);
+        if(entry.length > SEGMENT_BYTES) return; //Too big to map, far bigger than any thumbnail sizes make
+
+        int last = segments.size() - 1;
+        long start = segmentStarts.get(last);
+        if(end + entry.length - start > SEGMENT_BYTES) { //Would not fit in the last segment, start a new one
+            start = end;
+            segmentStarts.add(start);
+            segments.add(null);
+            last++;
+        }
+        write(channel, ByteBuffer.wrap(entry), end);
+        index.put(path, new long[] {last, end - start + entry.length - pixelBytes, modified, length});
+        end += entry.length;
+        segments.set(last, channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)); //Readers keep the old mapping, which is still valid
+    }
+
+    /**
+     * Build an entry of the cache file
+     * @param path Path of the image, UTF-8
+     * @param modified Modified time of the image
+     * @param length Length of the image file
+     * @param pixels Every size of thumbnail as RGB bytes
+     * @return The entry, ready to write
+     */
+    private static byte[] entry(byte[] path, long modified, long length, byte[] pixels) {
+        ByteBuffer entry = ByteBuffer.allocate(4 + 2 + path.length + 16 + pixels.length);
+        entry.putInt(2 + path.length + 16 + pixels.length);
+        entry.putShort((short) path.length);
+        entry.put(path).putLong(modified).putLong(length).put(pixels);
+        return entry.array();
+    }
+
+    /**
+     * @return Bytes an entry for a path takes in the cache file
+     */
+    private int entryBytes(String path) {
+        return 4 + 2 + path.getBytes(StandardCharsets.UTF_8).length + 16 + pixelBytes;
+    }
+
+    /**
+     * Copy thumbnail pixels out of the mapping of an entry
+     * @param entry Entry from the index
+     * @param offset Offset from the start of the entry's pixels
+     * @param count Number of bytes to copy
+     * @return The bytes
+     */
+    private byte[] read(long[] entry, int offset, int count) {
+        MappedByteBuffer segment;
+        synchronized(this) {
+            segment = segments.get((int) entry[0]);
+        }
+        byte[] bytes = new byte[count];
+        ByteBuffer read = segment.duplicate(); //Own position, so threads can read at once
+        read.position((int) entry[1] + offset);
+        read.get(bytes); //One copy out of the mapping, much faster than a get for each byte
+        return bytes;
+    }
+
+    /**
+     * Write all of a buffer to a channel
+     * @return Position after the buffer
+     */
+    private static long write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining())
+            position += channel.write(buffer, position);
+        return position;
+    }
+
+    /**
+     * Close the cache file
+     */
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return Index of a size in sizes, or -1 if it is not one of them
+     */
+    private int indexOfSize(int size) {
+        for(int i = 0; i < sizes.length; i++)
+            if(sizes[i] == size) return i;
+        return -1;
+    }
+
+    /**
+     * Scale a square image down to a smaller square
+     */
+    private static BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, size, size, null);
+        g.dispose();
+        return scaled;
+    }
+}
@@ -0,0 +1,352 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * The hot paths of the game, set up as operations for the JMH benchmarks in the benchmarks package:
+ * route planning on open and maze boards, push planning on generated levels, the solved check, a moveOrPush step through the rules,
+ * and storing, undoing, redoing and jumping through the history.
+ * Boards are generated from fixed seeds, so every run measures the same work.
+ *
+ * JMH will not run benchmarks in the default package, and a named package cannot see the game classes,
+ * so the benchmarks look these methods up by name once, while setting up, and only the returned
+ * operation is called while measuring. Each operation returns a value from its result for JMH to consume.
+ */
+public class HotPaths {
+    public static final int HISTORY_LENGTH = 1 << 20; //Actions recorded for the undo, redo and jump benchmarks
+
+    /**
+     * Plan a route from one corner of a board to the other with the A* planner
+     * @param kind "open" or "maze"
+     * @param size Width and height of the board
+     * @param cost "STRAIGHT" or "SHORTEST", the RouteCost to plan with
+     * @return Operation giving the length of the route
+     */
+    public static LongSupplier route(String kind, int size, String cost) {
+        Board board = generated(kind, size);
+        int start = board.getWorkerStart();
+        int goal = farthestFree(board, start);
+        RoutePlanner planner = new RoutePlanner(board);
+        RouteCost routeCost = cost.equals("STRAIGHT") ? RouteCost.STRAIGHT : RouteCost.SHORTEST;
+        return () -> planner.plan(start, 1, goal, routeCost).size();
+    }
+
+    /**
+     * Find the route from one corner of a board to the other with a breadth-first search of the
+     * reachability cache, as if a box had moved before every search so the region is searched again
+     * @param kind "open" or "maze"
+     * @param size Width and height of the board
+     * @return Operation giving the length of the route
+     */
+    public static LongSupplier reachability(String kind, int size) {
+        Board board = generated(kind, size);
+        int goal = farthestFree(board, board.getWorkerStart());
+        GameEngine engine = new GameEngine();
+        engine.load(board);
+        ReachabilityCache reachability = new ReachabilityCache(engine);
+        return () -> {
+            reachability.cellChanged(goal);
+            return reachability.routeTo(goal).size();
+        };
+    }
+
+    /**
+     * Plan pushing a box to a cell on a generated level, as a click in the game does
+     * @param size Width and height of the level, which has one box for every 500 cells
+     * @param clicks "random" to plan 256 random clicks in turn, or "slowest" to plan the slowest of them each time
+     * @return Operation giving the length of the plan, or 0 if there is none
+     */
+    public static LongSupplier pushPlan(int size, String clicks) {
+        Board board = new LevelGenerator(size).generate(size, size, Math.max(1, size * size / 500));
+        PushPlanner planner = new PushPlanner(board);
+        int worker = board.getWorkerStart();
+        List<Integer> boxes = new ArrayList<>(), free = new ArrayList<>();
+        for(int i = 0; i < board.size(); i++) {
+            if(board.hasBox(i)) boxes.add(i);
+            else if(board.isFree(i)) free.add(i);
+        }
+
+        Random random = new Random(size);
+        int[][] plans = new int[256][];
+        for(int i = 0; i < plans.length; i++)
+            plans[i] = new int[] {boxes.get(random.nextInt(boxes.size())), free.get(random.nextInt(free.size()))};
+        if(clicks.equals("slowest")) { //Time each click, after planning them all once to warm up
+            for(int[] plan : plans) planner.plan(worker, plan[0], plan[1], RouteCost.SHORTEST);
+            int[] slowest = plans[0];
+            long slowestNanos = 0;
+            for(int[] plan : plans) {
+                long start = System.nanoTime();
+                planner.plan(worker, plan[0], plan[1], RouteCost.SHORTEST);
+                long nanos = System.nanoTime() - start;
+                if(nanos > slowestNanos) {
+                    slowestNanos = nanos;
+                    slowest = plan;
+                }
+            }
+            plans = new int[][] {slowest};
+        }
+
+        int[][] chosen = plans;
+        int[] next = {0};
+        return () -> {
+            int[] plan = chosen[next[0]++ % chosen.length];
+            ArrayList<Position> route = planner.plan(worker, plan[0], plan[1], RouteCost.SHORTEST);
+            return route == null ? 0 : route.size();
+        };
+    }
+
+    /**
+     * Check whether a board is solved, as the game does after every push
+     * @param board A shipped level, e.g. "warehouse1", read from the working directory, or a generated board, e.g. "open.128"
+     * @return Operation giving 1 if the board is solved
+     */
+    public static LongSupplier isSolved(String board) {
+        GameEngine engine = new GameEngine();
+        if(board.startsWith("warehouse")) {
+            try {
+                engine.load(Board.load(new File(board + ".txt")));
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        else {
+            String[] parts = board.split("\\.");
+            engine.load(generated(parts[0], Integer.parseInt(parts[1])));
+        }
+        return () -> engine.isSolved() ? 1 : 0;
+    }
+
+    /**
+     * Walk the worker right and left across an open board
+     * @param size Width and height of the board
+     * @return Operation giving the result of moveOrPush
+     */
+    public static LongSupplier move(int size) {
+        GameEngine engine = new GameEngine();
+        engine.load(openBoard(size, size));
+        int[] steps = {0};
+        return () -> engine.moveOrPush((steps[0]++ & 1) == 0 ? "right" : "left");
+    }
+
+    /**
+     * Push a box one step and pull it back
+     * @param size Width and height of the board
+     * @return Operation giving the result of moveOrPush
+     */
+    public static LongSupplier pushPull(int size) {
+        Board board = openBoard(size, size);
+        board.addBox(board.getWorkerStart() + 1);
+        GameEngine engine = new GameEngine();
+        engine.load(board);
+        return () -> {
+            int result = engine.moveOrPush("right");
+            engine.pull("left");
+            return result;
+        };
+    }
+
+    /**
+     * Step the worker the way the game does, with the reachability cache and history listening and the action stored
+     * @param size Width and height of the board
+     * @return Operation giving the result of moveOrPush
+     */
+    public static LongSupplier gameStep(int size) {
+        GameEngine engine = new GameEngine();
+        engine.load(openBoard(size, size));
+        new ReachabilityCache(engine);
+        HistoryManager history = new HistoryManager(engine, HISTORY_LENGTH);
+        int[] steps = {0};
+        return () -> {
+            int dir = (steps[0]++ & 1) == 0 ? 1 : 3;
+            int result = engine.moveOrPush(GameEngine.CROSS_OFFSET_NAMES[dir]);
+            if(result != GameEngine.NONE) history.storeAction(result == GameEngine.PUSH, dir);
+            return result;
+        };
+    }
+
+    /**
+     * Take random steps around a boxed board, storing each action in the history
+     * @return Operation giving the result of moveOrPush
+     */
+    public static LongSupplier historyStore() {
+        GameEngine engine = new GameEngine();
+        engine.load(boxedBoard(128, 128, 7));
+        HistoryManager history = new HistoryManager(engine, HISTORY_LENGTH);
+        Random random = new Random(11);
+        return () -> randomStep(engine, history, random);
+    }
+
+    /**
+     * Undo a full history one action at a time, then redo it
+     * @return Operation giving 1 if an action was undone or redone, 0 when it turns round
+     */
+    public static LongSupplier historyUndoRedo() {
+        HistoryManager history = fullHistory(new GameEngine(), new Random(11));
+        boolean[] undoing = {true};
+        return () -> {
+            if(undoing[0] ? history.undoAction() : history.redoAction()) return 1;
+            undoing[0] = !undoing[0];
+            return 0;
+        };
+    }
+
+    /**
+     * Jump to random points of a full history
+     * @return Operation giving the worker's position after the jump
+     */
+    public static LongSupplier historyJumpTo() {
+        GameEngine engine = new GameEngine();
+        Random random = new Random(11);
+        HistoryManager history = fullHistory(engine, random);
+        return () -> history.jumpTo(random.nextInt(history.size() + 1)) ? engine.getWorker() : 0;
+    }
+
+    /**
+     * Take a random step, storing it in the history if the worker moved
+     */
+    private static int randomStep(GameEngine engine, HistoryManager history, Random random) {
+        int dir = random.nextInt(4);
+        int result = engine.moveOrPush(GameEngine.CROSS_OFFSET_NAMES[dir]);
+        if(result != GameEngine.NONE) history.storeAction(result == GameEngine.PUSH, dir);
+        return result;
+    }
+
+    /**
+     * Load a boxed board into an engine and take random steps until the history holds HISTORY_LENGTH actions
+     */
+    private static HistoryManager fullHistory(GameEngine engine, Random random) {
+        engine.load(boxedBoard(128, 128, 7));
+        HistoryManager history = new HistoryManager(engine, HISTORY_LENGTH);
+        while(history.size() < HISTORY_LENGTH)
+            randomStep(engine, history, random);
+        return history;
+    }
+
+    /**
+     * Make a generated board
+     * @param kind "open" or "maze"
+     * @param size Width and height of the board
+     */
+    private static Board generated(String kind, int size) {
+        switch(kind) {
+            case "open": return openBoard(size, size);
+            case "maze": return mazeBoard(size, size, size);
+            default: throw new RuntimeException("Unknown board kind: " + kind);
+        }
+    }
+
+    /**
+     * Make an empty warehouse with walls round the edge and the worker in the top left corner
+     */
+    private static Board openBoard(int rows, int cols) {
+        Board board = new Board(rows, cols);
+        for(int row = 0; row < rows; row++)
+            for(int col = 0; col < cols; col++)
+                if(row == 0 || col == 0 || row == rows - 1 || col == cols - 1) board.addWall(board.index(row, col));
+        return withWorker(board, board.index(1, 1));
+    }
+
+    /**
+     * Make a maze with one route between any two of its cells, carved by a depth first
+     * search from the top left corner, with the worker in that corner
+     */
+    private static Board mazeBoard(int rows, int cols, long seed) {
+        Board board = new Board(rows, cols);
+        for(int i = 0; i < board.size(); i++) board.addWall(i);
+        Random random = new Random(seed);
+        boolean[] carved = new boolean[board.size()];
+        int[] stack = new int[board.size()];
+        int top = 0;
+        stack[top++] = board.index(1, 1);
+        carved[stack[0]] = true;
+        int[] order = {0, 1, 2, 3};
+        while(top > 0) {
+            int cell = stack[top - 1];
+            int row = board.rowOf(cell), col = board.colOf(cell);
+            for(int i = 3; i > 0; i--) { //Try the directions in a random order
+                int j = random.nextInt(i + 1);
+                int swap = order[i]; order[i] = order[j]; order[j] = swap;
+            }
+            boolean moved = false;
+            for(int dir : order) {
+                int nextRow = row + 2 * GameEngine.CROSS_OFFSETS[dir][1];
+                int nextCol = col + 2 * GameEngine.CROSS_OFFSETS[dir][0];
+                if(nextRow < 1 || nextCol < 1 || nextRow > rows - 2 || nextCol > cols - 2) continue;
+                int next = board.index(nextRow, nextCol);
+                if(carved[next]) continue;
+                carved[next] = true;
+                carved[board.index(row + GameEngine.CROSS_OFFSETS[dir][1], col + GameEngine.CROSS_OFFSETS[dir][0])] = true; //The wall between
+                stack[top++] = next;
+                moved = true;
+                break;
+            }
+            if(!moved) top--;
+        }
+
+        Board maze = new Board(rows, cols);
+        for(int i = 0; i < maze.size(); i++)
+            if(!carved[i]) maze.addWall(i);
+        return withWorker(maze, maze.index(1, 1));
+    }
+
+    /**
+     * Make an open warehouse with one box and one shelf on every tenth cell, to walk and push around in
+     */
+    private static Board boxedBoard(int rows, int cols, long seed) {
+        Board board = openBoard(rows, cols);
+        Random random = new Random(seed);
+        for(int i = 0; i < board.size(); i++) {
+            if(!board.isFree(i) || i == board.getWorkerStart()) continue;
+            int roll = random.nextInt(20);
+            if(roll == 0) board.addBox(i);
+            else if(roll == 1) board.addShelf(i);
+        }
+        return board;
+    }
+
+    /**
+     * Copy a board, putting the worker at a cell
+     */
+    private static Board withWorker(Board board, int worker) {
+        byte[] flags = new byte[board.size()];
+        for(int i = 0; i < flags.length; i++) flags[i] = board.getFlags(i);
+        return Board.fromFlags(board.getRows(), board.getCols(), flags, worker);
+    }
+
+    /**
+     * Find the free cell farthest from a cell by walking distance, the hardest goal for a route
+     */
+    private static int farthestFree(Board board, int from) {
+        int[] distance = new int[board.size()];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[board.size()];
+        int head = 0, tail = 0, last = from;
+        distance[from] = 0;
+        queue[tail++] = from;
+        while(head < tail) {
+            last = queue[head++];
+            for(int dir = 0; dir < 4; dir++) {
+                int row = board.rowOf(last) + GameEngine.CROSS_OFFSETS[dir][1];
+                int col = board.colOf(last) + GameEngine.CROSS_OFFSETS[dir][0];
+                if(!board.contains(row, col)) continue;
+                int next = board.index(row, col);
+                if(distance[next] < 0 && board.isFree(next)) {
+                    distance[next] = distance[last] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,104 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+/**
+ * Compares full-board redraw times for the two ways of drawing tiles:
+ * building the file name of each tile and looking the image up by name, scaling it as it is drawn,
+ * which is what drawing through UI.drawImage(name + ".gif", ...) did, against copying it from a TileAtlas.
+ * Draws into an offscreen image so it runs without a window.
+ *
+ * Run from the Sokoban directory, so the images and levels are found, as
+ *   java -Djava.awt.headless=true RenderBenchmark [frames]
+ */
+public class RenderBenchmark {
+    private static final int CELL_SIZE = 25; //Same as Sokoban.CELL_SIZE
+
+    public static void main(String[] args) throws IOException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        TileAtlas atlas = new TileAtlas(new File("."), CELL_SIZE);
+        Map<String, Image> byName = new HashMap<>();
+        for(String name : new String[] {"empty", "wall", "shelf", "box", "boxOnShelf", "worker-left"})
+            byName.put(name + ".gif", ImageIO.read(new File(name + ".gif")));
+
+        System.out.println("board        cells    by name (ms/frame)  atlas (ms/frame)  speedup");
+        for(int level = 1; new File("warehouse" + level + ".txt").exists(); level++)
+            run("warehouse" + level, Board.load(new File("warehouse" + level + ".txt")), frames, atlas, byName);
+        run("random 50x50", randomBoard(50, 50, 1), frames, atlas, byName);
+        run("random 200x200", randomBoard(200, 200, 2), Math.max(1, frames / 10), atlas, byName);
+    }
+
+    /**
+     * Time redrawing a board both ways and print a row of the table
+     */
+    private static void run(String name, Board board, int frames, TileAtlas atlas, Map<String, Image> byName) {
+        BufferedImage target = new BufferedImage(board.getCols() * CELL_SIZE, board.getRows() * CELL_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+
+        for(int i = 0; i < 3; i++) { //Warm up both before timing
+            drawByName(g, board, byName);
+            drawAtlas(g, board, atlas);
+        }
+        long start = System.nanoTime();
+        for(int i = 0; i < frames; i++) drawByName(g, board, byName);
+        double byNameMillis = (System.nanoTime() - start) / 1e6 / frames;
+
+        start = System.nanoTime();
+        for(int i = 0; i < frames; i++) drawAtlas(g, board, atlas);
+        double atlasMillis = (System.nanoTime() - start) / 1e6 / frames;
+
+        g.dispose();
+        System.out.println(String.format("%-12s %6d %18.3f %17.3f %8.1fx", name, board.size(), byNameMillis, atlasMillis, byNameMillis / atlasMillis));
+    }
+
+    /**
+     * Redraw every cell by building its file name, looking the image up and scaling it
+     */
+    private static void drawByName(Graphics2D g, Board board, Map<String, Image> byName) {
+        for(int i = 0; i < board.size(); i++) {
+            String tile = board.getTileName(i);
+            if(tile == null) continue;
+            g.drawImage(byName.get(tile + ".gif"), board.colOf(i) * CELL_SIZE, board.rowOf(i) * CELL_SIZE, CELL_SIZE, CELL_SIZE, null);
+        }
+    }
+
+    /**
+     * Redraw every cell by copying its tile from the atlas
+     */
+    private static void drawAtlas(Graphics2D g, Board board, TileAtlas atlas) {
+        for(int i = 0; i < board.size(); i++) {
+            int tile = TileAtlas.tileOf(board, i);
+            if(tile < 0) continue;
+            atlas.draw(g, tile, board.colOf(i) * CELL_SIZE, board.rowOf(i) * CELL_SIZE);
+        }
+    }
+
+    /**
+     * Make a board with walls round the edge and random walls, boxes and shelves inside
+     */
+    private static Board randomBoard(int rows, int cols, long seed) {
+        Random random = new Random(seed);
+        Board board = new Board(rows, cols);
+        for(int row = 0; row < rows; row++) {
+            for(int col = 0; col < cols; col++) {
+                int index = board.index(row, col);
+                int roll = random.nextInt(10);
+                if(row == 0 || col == 0 || row == rows - 1 || col == cols - 1 || roll == 0) board.addWall(index);
+                else if(roll == 1) board.addBox(index);
+                else if(roll == 2) board.addShelf(index);
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,68 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Storing, undoing and redoing one action at a time, and jumping to random points of a history
+ * of HotPaths.HISTORY_LENGTH actions. Each benchmark has its own state, so the long history is
+ * only recorded for the benchmarks that use it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HistoryBenchmark {
+    @State(Scope.Thread)
+    public static class Store {
+        LongSupplier operation; //Random step stored in the history
+
+        @Setup
+        public void setUp() {
+            operation = HotPath.of("historyStore");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UndoRedo {
+        LongSupplier operation; //Undo or redo of one action
+
+        @Setup
+        public void setUp() {
+            operation = HotPath.of("historyUndoRedo");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class JumpTo {
+        LongSupplier operation; //Jump to a random point of the history
+
+        @Setup
+        public void setUp() {
+            operation = HotPath.of("historyJumpTo");
+        }
+    }
+
+    @Benchmark
+    public long store(Store state) {
+        return state.operation.getAsLong();
+    }
+
+    @Benchmark
+    public long undoRedo(UndoRedo state) {
+        return state.operation.getAsLong();
+    }
+
+    @Benchmark
+    public long jumpTo(JumpTo state) {
+        return state.operation.getAsLong();
+    }
+}
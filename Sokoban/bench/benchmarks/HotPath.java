@@ -0,0 +1,39 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.LongSupplier;
+
+/**
+ * Looks up the operations of HotPaths, which is in the default package with the game classes
+ * and so cannot be named from here. Only used while setting up, never while measuring.
+ */
+final class HotPath {
+    private HotPath() {
+    }
+
+    /**
+     * Set up an operation
+     * @param name Name of the HotPaths method that sets it up, e.g. "route"
+     * @param args Arguments for the method
+     * @return The operation to measure
+     */
+    static LongSupplier of(String name, Object... args) {
+        try {
+            for(Method method : Class.forName("HotPaths").getMethods())
+                if(method.getName().equals(name) && method.getParameterCount() == args.length)
+                    return (LongSupplier) method.invoke(null, args);
+        } catch(ClassNotFoundException | IllegalAccessException e) {
+            throw new RuntimeException("Could not find HotPaths." + name, e);
+        } catch(InvocationTargetException e) {
+            throw new RuntimeException("Could not set up " + name, e.getCause());
+        }
+        throw new RuntimeException("No HotPaths." + name + " taking " + args.length + " arguments");
+    }
+}
@@ -0,0 +1,52 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Steps through the rules on open boards: walking, pushing a box and pulling it back, and a step
+ * the way the game does it, with the reachability cache and history listening and the action stored.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveBenchmark {
+    @Param({"32", "128", "512"})
+    public int size;        //Width and height of the board
+
+    private LongSupplier move;      //Walk right and left
+    private LongSupplier pushPull;  //Push a box right and pull it back
+    private LongSupplier gameStep;  //Walk with the cache and history listening
+
+    @Setup
+    public void setUp() {
+        move = HotPath.of("move", size);
+        pushPull = HotPath.of("pushPull", size);
+        gameStep = HotPath.of("gameStep", size);
+    }
+
+    @Benchmark
+    public long move() {
+        return move.getAsLong();
+    }
+
+    @Benchmark
+    public long pushPull() {
+        return pushPull.getAsLong();
+    }
+
+    @Benchmark
+    public long gameStep() {
+        return gameStep.getAsLong();
+    }
+}
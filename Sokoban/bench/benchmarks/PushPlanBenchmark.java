@@ -0,0 +1,46 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Planning the pushes of one box to a clicked cell on generated levels, which the game does on the
+ * click's thread, so a plan should take well under 50 ms. Measures random clicks in turn, and the
+ * slowest of those clicks on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PushPlanBenchmark {
+    @Param({"60", "100"})
+    public int size;        //Width and height of the level
+
+    private LongSupplier random;    //256 random clicks, planned in turn
+    private LongSupplier slowest;   //The slowest of the random clicks
+
+    @Setup
+    public void setUp() {
+        random = HotPath.of("pushPlan", size, "random");
+        slowest = HotPath.of("pushPlan", size, "slowest");
+    }
+
+    @Benchmark
+    public long random() {
+        return random.getAsLong();
+    }
+
+    @Benchmark
+    public long slowest() {
+        return slowest.getAsLong();
+    }
+}
@@ -0,0 +1,55 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Route planning from one corner of a generated board to the other, with the A* planner under
+ * both cost models and with a breadth-first search of the reachability cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RoutingBenchmark {
+    @Param({"open", "maze"})
+    public String kind;     //Kind of generated board
+
+    @Param({"32", "128", "512"})
+    public int size;        //Width and height of the board
+
+    private LongSupplier straight;      //A* route with RouteCost.STRAIGHT
+    private LongSupplier shortest;      //A* route with RouteCost.SHORTEST
+    private LongSupplier reachability;  //Route from a fresh search of the reachability cache
+
+    @Setup
+    public void setUp() {
+        straight = HotPath.of("route", kind, size, "STRAIGHT");
+        shortest = HotPath.of("route", kind, size, "SHORTEST");
+        reachability = HotPath.of("reachability", kind, size);
+    }
+
+    @Benchmark
+    public long straight() {
+        return straight.getAsLong();
+    }
+
+    @Benchmark
+    public long shortest() {
+        return shortest.getAsLong();
+    }
+
+    @Benchmark
+    public long reachability() {
+        return reachability.getAsLong();
+    }
+}
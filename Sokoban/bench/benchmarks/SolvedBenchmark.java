@@ -0,0 +1,38 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The solved check the game makes after every push, on the shipped levels and on generated boards.
+ * The shipped levels are read from the working directory, so run the benchmarks from the Sokoban directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SolvedBenchmark {
+    @Param({"warehouse1", "warehouse2", "warehouse3", "warehouse4", "open.32", "open.128", "open.512"})
+    public String board;    //Shipped level or generated board
+
+    private LongSupplier isSolved;  //Engine's solved check
+
+    @Setup
+    public void setUp() {
+        isSolved = HotPath.of("isSolved", board);
+    }
+
+    @Benchmark
+    public long isSolved() {
+        return isSolved.getAsLong();
+    }
+}
@@ -18,6 +18,9 @@
  */
 
 public class ActionRecord {
+    public static final int PUSH_BIT = 4;   // bit of an encoded action that is set for a push
+    public static final int DIR_MASK = 3;   // bits of an encoded action holding the direction index
+
     private final boolean isPush;   // if it is not a "push", it is a "move"
     private final String direction; // direction of the move or push
 
@@ -50,6 +53,44 @@ public class ActionRecord {
         return direction;
     }
 
+    /**
+     * Pack the action into a byte, see encode(boolean, int)
+     */
+    public byte encode() {
+        return encode(isPush, GameEngine.directionIndex(direction));
+    }
+
+    /**
+     * Pack an action into the low three bits of a byte: the push bit and the direction index
+     * @param push Whether the action is a push
+     * @param dir Direction index in GameEngine.CROSS_OFFSETS
+     * @return The encoded action
+     */
+    public static byte encode(boolean push, int dir) {
+        return (byte) ((push ? PUSH_BIT : 0) | (dir & DIR_MASK));
+    }
+
+    /**
+     * Is an encoded action a push?
+     */
+    public static boolean isPush(byte code) {
+        return (code & PUSH_BIT) != 0;
+    }
+
+    /**
+     * Return the direction index of an encoded action
+     */
+    public static int direction(byte code) {
+        return code & DIR_MASK;
+    }
+
+    /**
+     * Unpack an encoded action into a record
+     */
+    public static ActionRecord decode(byte code) {
+        return new ActionRecord(isPush(code) ? "push" : "move", GameEngine.CROSS_OFFSET_NAMES[direction(code)]);
+    }
+
     /**
      * Return a String describing the recorded action
      */
@@ -0,0 +1,110 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Plays animations such as auto-move routes one step at a time on a timer thread,
+ * so the input thread is never put to sleep while a route is walked.
+ * Each step runs while holding the game lock, and input handlers take the same lock,
+ * so a step and a key press never change the game at the same time.
+ * Only one animation plays at once: starting one, or cancelling, stops the one before.
+ */
+public class AutoMover {
+    private final Object lock;          //Lock shared with the input handlers of the game
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "auto-move");
+        thread.setDaemon(true); //Don't keep the program running after the window closes
+        return thread;
+    });
+    private volatile int stepMillis;    //Delay between steps
+    private volatile int generation;    //Increased on every play or cancel, steps of older animations do nothing
+    private ScheduledFuture<?> pending; //Next step of the animation playing, or null
+
+    /**
+     * Constructor
+     * @param lock Lock that input handlers hold while changing the game
+     * @param stepMillis Delay between steps in milliseconds
+     */
+    public AutoMover(Object lock, int stepMillis) {
+        this.lock = lock;
+        this.stepMillis = stepMillis;
+    }
+
+    /**
+     * Set how fast animations play, which also applies to the one playing now
+     * @param stepMillis Delay between steps in milliseconds
+     */
+    public void setStepMillis(int stepMillis) {
+        this.stepMillis = Math.max(1, stepMillis);
+    }
+
+    /**
+     * @return Delay between steps in milliseconds
+     */
+    public int getStepMillis() {
+        return stepMillis;
+    }
+
+    /**
+     * Start an animation at the auto-move speed, cancelling any animation already playing.
+     * The first step runs straight away on the timer thread.
+     * @param step Runs one step while the lock is held, and returns false when there are no more steps
+     */
+    public void play(BooleanSupplier step) {
+        play(step, -1);
+    }
+
+    /**
+     * Start an animation at a fixed speed, cancelling any animation already playing.
+     * @param step Runs one step while the lock is held, and returns false when there are no more steps
+     * @param millis Delay between steps in milliseconds, or -1 to follow setStepMillis
+     */
+    public synchronized void play(BooleanSupplier step, int millis) {
+        cancel();
+        int playing = generation;
+        pending = timer.schedule(() -> runStep(step, millis, playing), 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the animation playing, if any. A step that has already started finishes first,
+     * so once the caller holds the lock no more steps of the animation will run.
+     */
+    public synchronized void cancel() {
+        generation++;
+        if(pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * @return True if an animation is playing
+     */
+    public synchronized boolean isPlaying() {
+        return pending != null;
+    }
+
+    /**
+     * Run a step of an animation and schedule the next one
+     */
+    private void runStep(BooleanSupplier step, int millis, int playing) {
+        boolean more;
+        synchronized(lock) {
+            if(playing != generation) return; //Cancelled while waiting for the lock
+            more = step.getAsBoolean();
+        }
+        synchronized(this) {
+            if(playing != generation) return; //The step started another animation, or input cancelled it
+            long delay = millis < 0 ? stepMillis : millis;
+            pending = more ? timer.schedule(() -> runStep(step, millis, playing), delay, TimeUnit.MILLISECONDS) : null;
+        }
+    }
+}
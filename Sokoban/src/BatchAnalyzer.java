@@ -0,0 +1,295 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves and measures every level in a directory, and ranks them by difficulty.
+ * Levels are analysed in parallel on a fixed pool of threads, each with its own time, node
+ * and memory budget, which the solver checks as it runs. A level that cannot be solved only
+ * holds up one thread until its budget runs out. The memory budget counts only that level's
+ * states and is checked before the state table grows, and by default each thread gets an equal
+ * share of the heap (Solver.memoryShare), so one level cannot use up the heap the others share.
+ * Warehouse files (*.txt) are one level each, and packs (*.xsb, *.sok) are split into their levels
+ * by LevelPack, which leaves its cache file next to each pack.
+ *
+ * Run from the command line as
+ *   java BatchAnalyzer directory [-threads n] [-time ms] [-nodes n] [-memory mb] [-json] [-nosolve] [-out file]
+ * The report is CSV unless -json is given, ordered from hardest to easiest. -nosolve only
+ * does the quick analysis of dead squares and the lower bound, which is reported for every
+ * level that could be read, even if solving it failed.
+ *
+ * The difficulty is log10 of the nodes the solver expanded, plus one for each push the
+ * solution needs beyond the lower bound, divided by ten. Hard levels need many nodes, and
+ * levels where the boxes must take long ways round are harder than their size suggests.
+ * Levels that were not solved in the budget are ranked above every solved level, and levels that
+ * failed below, but neither has a difficulty: it is empty in the CSV and null in the JSON.
+ */
+public class BatchAnalyzer {
+    private static final String[] STATUS_NAMES = { //Report names of the Solver statuses, in status order
+            "solved", "unsolvable", "node-limit", "timeout", "memory-limit", "cancelled"
+    };
+
+    /**
+     * Results for one level
+     */
+    private static class Result {
+        String name;            //File name, with the level number for levels of a pack
+        String status;          //Solver status name, or "error" or "analysed"
+        int boxes;              //Number of boxes
+        int deadSquares;        //Number of floor cells a box can never be pushed off
+        int lowerBound;         //Lower bound on the number of pushes, -1 if a box starts on a dead square
+        int pushes = -1;        //Pushes in the solution, -1 if not solved
+        int moves = -1;         //Moves in the solution, including pushes, -1 if not solved
+        long nodes;             //Nodes the solver expanded
+        long millis;            //Time taken
+        long searchBytes;       //Memory used by the solver's states
+        double difficulty;      //Estimated difficulty, see the class comment, also the rank of unrated levels
+        String error;           //Why the level could not be read, or null
+    }
+
+    public static void main(String[] args) throws Exception {
+        File directory = null, out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long timeMillis = 10000, nodes = Solver.DEFAULT_NODE_LIMIT, memoryMb = 0; //0 for a share of the heap
+        boolean json = false, solve = true;
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-threads": threads = Integer.parseInt(args[++i]); break;
+                case "-time": timeMillis = Long.parseLong(args[++i]); break;
+                case "-nodes": nodes = Long.parseLong(args[++i]); break;
+                case "-memory": memoryMb = Long.parseLong(args[++i]); break;
+                case "-json": json = true; break;
+                case "-nosolve": solve = false; break;
+                case "-out": out = new File(args[++i]); break;
+                default: directory = new File(args[i]);
+            }
+        }
+        if(directory == null || !directory.isDirectory()) {
+            System.err.println("Usage: java BatchAnalyzer directory [-threads n] [-time ms] [-nodes n] [-memory mb] [-json] [-nosolve] [-out file]");
+            System.exit(2);
+        }
+
+        long memoryBytes = memoryMb > 0 ? memoryMb * 1024 * 1024 : Solver.memoryShare(threads);
+        List<Result> results = analyse(directory, threads, timeMillis, nodes, memoryBytes, solve);
+        results.sort((a, b) -> Double.compare(b.difficulty, a.difficulty));
+        try(PrintStream print = out == null ? new PrintStream(System.out, true) : new PrintStream(out)) {
+            if(json) writeJson(print, results);
+            else writeCsv(print, results);
+        }
+    }
+
+    /**
+     * Analyse every level in a directory in parallel
+     * @param directory Directory of levels
+     * @param threads Number of levels to analyse at once
+     * @param timeMillis Time budget of each level
+     * @param nodes Node budget of each level
+     * @param memoryBytes Memory budget for the states of each level
+     * @param solve False to skip the solver and only find dead squares and the lower bound
+     * @return The result of every level, in file order
+     */
+    public static List<Result> analyse(File directory, int threads, long timeMillis, long nodes, long memoryBytes, boolean solve)
+            throws InterruptedException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".txt") || name.endsWith(".xsb") || name.endsWith(".sok"));
+        Arrays.sort(files); //Same order on every run
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<>();
+        List<String> futureNames = new ArrayList<>(); //Level name of each future, for reporting a failure
+        for(File file : files) {
+            List<String> names = new ArrayList<>();
+            List<Board> boards = new ArrayList<>();
+            String error = null;
+            try {
+                if(file.getName().endsWith(".txt")) {
+                    names.add(file.getName());
+                    boards.add(Board.load(file));
+                }
+                else {
+                    LevelPack pack = new LevelPack(file);
+                    for(int level = 1; level <= pack.size(); level++) {
+                        names.add(file.getName() + "#" + level);
+                        boards.add(pack.getLevel(level));
+                    }
+                }
+            } catch(IOException | RuntimeException e) {
+                error = e.getMessage();
+            }
+            if(error != null) {
+                Result result = new Result();
+                result.name = file.getName();
+                result.status = "error";
+                result.error = error;
+                result.difficulty = -1;
+                futures.add(pool.submit(() -> result));
+                futureNames.add(file.getName());
+                continue;
+            }
+            for(int i = 0; i < boards.size(); i++) {
+                String name = names.get(i);
+                Board board = boards.get(i);
+                futures.add(pool.submit(() -> analyseLevel(name, board, solve, timeMillis, nodes, memoryBytes)));
+                futureNames.add(name);
+            }
+        }
+        pool.shutdown();
+
+        List<Result> results = new ArrayList<>();
+        for(int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch(Exception e) {
+                results.add(failed(futureNames.get(i), e));
+            }
+        }
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        return results;
+    }
+
+    /**
+     * Result for a level whose analysis threw an exception
+     */
+    private static Result failed(String name, Exception e) {
+        Result result = new Result();
+        result.name = name;
+        result.status = "error";
+        result.error = String.valueOf(e.getCause() != null ? e.getCause() : e);
+        result.difficulty = -1;
+        return result;
+    }
+
+    /**
+     * Analyse one level
+     * @param name Name for the report
+     * @param board The level
+     * @param solve False to skip solving
+     * @param timeMillis Time budget of the solver
+     * @param nodes Node budget of the solver
+     * @param memoryBytes Memory budget for the solver's states
+     * @return The results
+     */
+    private static Result analyseLevel(String name, Board board, boolean solve, long timeMillis, long nodes, long memoryBytes) {
+        Result result = new Result();
+        result.name = name;
+        result.boxes = board.getBoxCount();
+
+        SolverLevel level = new SolverLevel(board);
+        DeadlockDetector deadlocks = level.getDeadlocks();
+        for(int i = 0; i < board.size(); i++)
+            if(!board.isWall(i) && !board.isOutside(i) && deadlocks.isDeadSquare(i))
+                result.deadSquares++;
+        int bound = level.lowerBound(Solver.boxesOf(board));
+        result.lowerBound = bound == SolverLevel.UNREACHABLE ? -1 : bound;
+
+        if(!solve) {
+            result.status = "analysed";
+            result.difficulty = result.lowerBound;
+            return result;
+        }
+
+        Solver solver = new Solver(level, board, board.getWorkerStart()); //Shares the dead squares and distances found above
+        solver.setTimeLimit(timeMillis);
+        solver.setNodeLimit(nodes);
+        solver.setMemoryLimit(memoryBytes);
+        int status;
+        try {
+            status = solver.solve();
+        } catch(RuntimeException | OutOfMemoryError e) { //Keep the analysis above, the states are dropped with the solver
+            result.status = "error";
+            result.error = e.toString();
+            result.difficulty = -1;
+            return result;
+        }
+        result.status = STATUS_NAMES[status];
+        result.nodes = solver.getNodesExpanded();
+        result.millis = solver.getElapsedMillis();
+        result.searchBytes = solver.getSearchMemory();
+        if(status == Solver.SOLVED) {
+            result.pushes = solver.getSolution().length;
+            result.moves = solver.getMoves().size();
+            result.difficulty = (Math.log10(result.nodes + 1) + (result.pushes - result.lowerBound)) / 10;
+        }
+        else if(status == Solver.UNSOLVABLE)
+            result.difficulty = 0; //Proven impossible, nothing to rank
+        else
+            result.difficulty = Double.MAX_VALUE; //Harder than anything the budget could solve
+        return result;
+    }
+
+    /**
+     * Write the results as CSV with a header row
+     */
+    private static void writeCsv(PrintStream out, List<Result> results) {
+        out.println("level,status,boxes,dead_squares,lower_bound,pushes,moves,nodes,millis,state_mb,difficulty,error");
+        for(Result r : results) {
+            out.println(String.join(",", csv(r.name), r.status, "" + r.boxes, "" + r.deadSquares, "" + r.lowerBound,
+                    "" + r.pushes, "" + r.moves, "" + r.nodes, "" + r.millis, String.format("%.1f", r.searchBytes / 1048576.0),
+                    isRated(r) ? difficulty(r) : "", r.error == null ? "" : csv(r.error)));
+        }
+    }
+
+    /**
+     * Write the results as a JSON array of objects
+     */
+    private static void writeJson(PrintStream out, List<Result> results) {
+        out.println("[");
+        for(int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            out.print("  {\"level\": " + json(r.name) + ", \"status\": " + json(r.status) + ", \"boxes\": " + r.boxes
+                    + ", \"deadSquares\": " + r.deadSquares + ", \"lowerBound\": " + r.lowerBound + ", \"pushes\": " + r.pushes
+                    + ", \"moves\": " + r.moves + ", \"nodes\": " + r.nodes + ", \"millis\": " + r.millis
+                    + ", \"stateBytes\": " + r.searchBytes + ", \"difficulty\": " + (isRated(r) ? difficulty(r) : "null")
+                    + (r.error == null ? "" : ", \"error\": " + json(r.error)) + "}");
+            out.println(i < results.size() - 1 ? "," : "");
+        }
+        out.println("]");
+    }
+
+    /**
+     * @return True if a level has a difficulty to report, false if it failed or was not solved in the budget
+     */
+    private static boolean isRated(Result r) {
+        return !r.status.equals("error") && r.difficulty != Double.MAX_VALUE;
+    }
+
+    /**
+     * Format a difficulty for the report
+     */
+    private static String difficulty(Result r) {
+        return String.format("%.2f", r.difficulty);
+    }
+
+    /**
+     * Quote a CSV field if it needs it
+     */
+    private static String csv(String text) {
+        if(text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) return text;
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Quote a JSON string
+     */
+    private static String json(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for(char ch : text.toCharArray()) {
+            if(ch == '"' || ch == '\\') quoted.append('\\').append(ch);
+            else if(ch < ' ') quoted.append(String.format("\\u%04x", (int) ch));
+            else quoted.append(ch);
+        }
+        return quoted.append('"').toString();
+    }
+}
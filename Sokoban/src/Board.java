@@ -0,0 +1,363 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * The contents of a warehouse stored as a flat array of cell flags.
+ * A cell is addressed by its index, row * cols + col.
+ * Each cell holds a combination of the WALL, SHELF and BOX flags, or OUTSIDE
+ * for the padding past the end of a row that is shorter than the widest row.
+ * The number of shelves without a box is kept up to date as boxes move,
+ * so checking whether the warehouse is solved does not need to scan the cells.
+ */
+public class Board {
+    public static final byte WALL = 1;    //Cell is a wall
+    public static final byte SHELF = 2;   //Cell is a shelf, with or without a box
+    public static final byte BOX = 4;     //Cell has a box in it
+    public static final byte OUTSIDE = 8; //Cell is not part of the warehouse
+
+    private static final byte BLOCKED = WALL | BOX | OUTSIDE; //Flags that stop the worker moving into a cell
+
+    private final int rows;      //Height of the warehouse
+    private final int cols;      //Width of the widest row of the warehouse
+    private final byte[] flags;  //Flags for every cell, indexed by row * cols + col
+    private int emptyShelves;    //Number of shelves that do not have a box on them
+    private int boxCount;        //Number of boxes in the warehouse
+    private int workerStart = -1; //Index of the worker in the level the board was parsed from
+
+    /**
+     * Constructor, creates a warehouse with every cell empty.
+     * @param rows Height of the warehouse
+     * @param cols Width of the warehouse
+     */
+    public Board(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.flags = new byte[rows * cols];
+    }
+
+    /**
+     * Copy constructor
+     * @param other The board to copy
+     */
+    public Board(Board other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.flags = other.flags.clone();
+        this.emptyShelves = other.emptyShelves;
+        this.boxCount = other.boxCount;
+        this.workerStart = other.workerStart;
+    }
+
+    /**
+     * Read a board from a level file.
+     * @param file The level file, e.g. warehouse1.txt
+     * @return The parsed board, with the worker start position set
+     * @throws IOException If the file could not be read
+     */
+    public static Board load(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath());
+        while(!lines.isEmpty() && lines.get(lines.size() - 1).isEmpty()) //Ignore blank lines at the end of the file
+            lines.remove(lines.size() - 1);
+        return parse(lines);
+    }
+
+    /**
+     * Build a board from flags saved from another board, see getFlags
+     * @param rows Height of the warehouse
+     * @param cols Width of the warehouse
+     * @param flags Flags for every cell, indexed by row * cols + col
+     * @param workerStart Index of the worker, or -1
+     * @return The board, owning the flags array from now on
+     */
+    public static Board fromFlags(int rows, int cols, byte[] flags, int workerStart) {
+        if(flags.length != rows * cols) throw new RuntimeException("Expected " + rows * cols + " cells, got " + flags.length);
+        Board board = new Board(rows, cols, flags);
+        board.workerStart = workerStart;
+        for(byte flag : flags) {
+            if((flag & BOX) != 0) board.boxCount++;
+            if((flag & (SHELF | BOX)) == SHELF) board.emptyShelves++;
+        }
+        return board;
+    }
+
+    /**
+     * Constructor for a board with its cells already filled in
+     */
+    private Board(int rows, int cols, byte[] flags) {
+        this.rows = rows;
+        this.cols = cols;
+        this.flags = flags;
+    }
+
+    /**
+     * Build a board from the lines of a level file.
+     * Both the warehouse file characters (w . # s b, where . is floor) and the standard
+     * XSB characters (@ + $ * . # and space, - or _ for floor, where . is a shelf) are read.
+     * The two are told apart by the characters only XSB uses, as . means something different in each.
+     * @param lines Lines of the level, one per row of the warehouse
+     * @return The parsed board, with the worker start position set
+     */
+    public static Board parse(List<String> lines) {
+        boolean xsb = false;
+        for(String line : lines)
+            for(int i = 0; i < line.length() && !xsb; i++)
+                xsb = "@+$*".indexOf(line.charAt(i)) >= 0;
+
+        int cols = 0;
+        for(String line : lines) //Rows can be different lengths, the board is as wide as the widest
+            cols = Math.max(cols, line.length());
+
+        Board board = new Board(lines.size(), cols);
+        for(int row = 0; row < lines.size(); row++) {
+            String line = lines.get(row);
+            for(int col = 0; col < cols; col++) {
+                int index = board.index(row, col);
+                if(col >= line.length()) {
+                    board.flags[index] = OUTSIDE;
+                    continue;
+                }
+                char ch = line.charAt(col);
+                if (ch=='#') board.flags[index] = WALL;
+                else if (xsb) {
+                    if (ch=='@' || ch=='+') board.workerStart = index;
+                    if (ch=='.' || ch=='+' || ch=='*') board.addShelf(index);
+                    if (ch=='$' || ch=='*') board.addBox(index);
+                    if ("@+$*. -_".indexOf(ch) < 0)
+                        throw new RuntimeException("Invalid char at "+row+","+col+"="+ch);
+                }
+                else if (ch=='w') board.workerStart = index;
+                else if (ch=='s') board.addShelf(index);
+                else if (ch=='b') board.addBox(index);
+                else if (ch!='.') {
+                    throw new RuntimeException("Invalid char at "+row+","+col+"="+ch);
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * @return Height of the warehouse
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return Width of the warehouse
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return Total number of cells, including any outside the warehouse
+     */
+    public int size() {
+        return flags.length;
+    }
+
+    /**
+     * @return Index of the worker in the level the board was parsed from, or -1
+     */
+    public int getWorkerStart() {
+        return workerStart;
+    }
+
+    /**
+     * Get the index of the cell at a row and column
+     */
+    public int index(int row, int col) {
+        return row * cols + col;
+    }
+
+    /**
+     * Get the index of the cell at a position
+     */
+    public int index(Position position) {
+        return index(position.row, position.col);
+    }
+
+    /**
+     * Get the row of a cell index
+     */
+    public int rowOf(int index) {
+        return index / cols;
+    }
+
+    /**
+     * Get the column of a cell index
+     */
+    public int colOf(int index) {
+        return index % cols;
+    }
+
+    /**
+     * Check whether a row and column are part of the warehouse
+     * @return False if the position is out of bounds or past the end of its row
+     */
+    public boolean contains(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols && (flags[index(row, col)] & OUTSIDE) == 0;
+    }
+
+    /**
+     * Get the raw flags of a cell, a combination of WALL, SHELF and BOX, or OUTSIDE
+     */
+    public byte getFlags(int index) {
+        return flags[index];
+    }
+
+    /**
+     * Is the cell past the end of a short row, not part of the warehouse?
+     */
+    public boolean isOutside(int index) {
+        return (flags[index] & OUTSIDE) != 0;
+    }
+
+    /**
+     * Is the cell a wall?
+     */
+    public boolean isWall(int index) {
+        return (flags[index] & WALL) != 0;
+    }
+
+    /**
+     * Is the cell a shelf, with or without a box?
+     */
+    public boolean isShelf(int index) {
+        return (flags[index] & SHELF) != 0;
+    }
+
+    /**
+     * Does the cell have a box in it?
+     */
+    public boolean hasBox(int index) {
+        return (flags[index] & BOX) != 0;
+    }
+
+    /**
+     * Is the cell a shelf without a box?
+     */
+    public boolean isEmptyShelf(int index) {
+        return (flags[index] & (SHELF | BOX)) == SHELF;
+    }
+
+    /**
+     * Is the cell free to move onto (not a wall, a box or outside the warehouse)
+     */
+    public boolean isFree(int index) {
+        return (flags[index] & BLOCKED) == 0;
+    }
+
+    /**
+     * Overload for isFree that checks the bounds of the row and column first
+     * @return False if the position is not in the warehouse or the cell is not free
+     */
+    public boolean isFree(int row, int col) {
+        return contains(row, col) && isFree(index(row, col));
+    }
+
+    /**
+     * Does the cell at the row and column have a box in it?
+     * @return False if the position is not in the warehouse or there is no box
+     */
+    public boolean hasBox(int row, int col) {
+        return contains(row, col) && hasBox(index(row, col));
+    }
+
+    /**
+     * Make the cell a shelf
+     */
+    public void addShelf(int index) {
+        if(isShelf(index)) return;
+        flags[index] |= SHELF;
+        if(!hasBox(index)) emptyShelves++;
+    }
+
+    /**
+     * Make the cell a wall, replacing any shelf or box in it
+     */
+    public void addWall(int index) {
+        removeBox(index);
+        if(isShelf(index)) emptyShelves--; //Empty now the box is gone, and about to stop being a shelf
+        flags[index] = WALL;
+    }
+
+    /**
+     * Put a box in the cell
+     */
+    public void addBox(int index) {
+        if(hasBox(index)) return;
+        flags[index] |= BOX;
+        boxCount++;
+        if(isShelf(index)) emptyShelves--;
+    }
+
+    /**
+     * Take the box out of the cell
+     */
+    public void removeBox(int index) {
+        if(!hasBox(index)) return;
+        flags[index] &= ~BOX;
+        boxCount--;
+        if(isShelf(index)) emptyShelves++;
+    }
+
+    /**
+     * Move a box from one cell to another
+     */
+    public void moveBox(int from, int to) {
+        removeBox(from);
+        addBox(to);
+    }
+
+    /**
+     * @return Number of shelves that do not have a box on them
+     */
+    public int getEmptyShelfCount() {
+        return emptyShelves;
+    }
+
+    /**
+     * @return Number of boxes in the warehouse
+     */
+    public int getBoxCount() {
+        return boxCount;
+    }
+
+    /**
+     * Fill an array with the board index of every box, in increasing order
+     * @param boxes Array to fill, with room for getBoxCount() boxes
+     */
+    public void getBoxes(int[] boxes) {
+        for(int i = 0, b = 0; i < flags.length; i++)
+            if((flags[i] & BOX) != 0) boxes[b++] = i;
+    }
+
+    /**
+     * Returns true if all the shelves have boxes on them
+     */
+    public boolean isSolved() {
+        return emptyShelves == 0;
+    }
+
+    /**
+     * Get the name of the image used to draw a cell, e.g. "boxOnShelf"
+     * @return Tile name, or null for cells outside the warehouse
+     */
+    public String getTileName(int index) {
+        byte flag = flags[index];
+        if((flag & OUTSIDE) != 0) return null;
+        if((flag & WALL) != 0) return "wall";
+        if((flag & BOX) != 0) return (flag & SHELF) != 0 ? "boxOnShelf" : "box";
+        return (flag & SHELF) != 0 ? "shelf" : "empty";
+    }
+}
@@ -0,0 +1,145 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+/**
+ * A StateTable that can be shared by several search threads.
+ * States are spread over a number of stripes by their hash, and each stripe is a
+ * StateTable with its own lock, so threads only wait for each other when they touch
+ * the same stripe. A state id holds the stripe in its low bits and the id within the
+ * stripe in the rest.
+ */
+public class ConcurrentStateTable {
+    private static final int STRIPE_BITS = 6;                 //Number of id bits used for the stripe
+    private static final int STRIPES = 1 << STRIPE_BITS;      //Number of stripes
+    private static final int STRIPE_MASK = STRIPES - 1;
+    public static final int FULL = -2;                         //Result of addIfAbsent when a stripe is out of memory
+
+    private final StateTable[] stripes = new StateTable[STRIPES];
+
+    /**
+     * Constructor
+     * @param boxCount Number of boxes in every state
+     */
+    public ConcurrentStateTable(int boxCount) {
+        for(int i = 0; i < STRIPES; i++)
+            stripes[i] = new StateTable(boxCount);
+    }
+
+    /**
+     * Set the most memory the table may use, shared evenly between the stripes
+     * @param bytes Memory limit in bytes, 0 for no limit
+     */
+    public void setMemoryLimit(long bytes) {
+        for(StateTable table : stripes) {
+            synchronized(table) {
+                table.setMemoryLimit(bytes == 0 ? 0 : Math.max(1, bytes / STRIPES));
+            }
+        }
+    }
+
+    /**
+     * Add a state if it is not already in the table
+     * @param boxes Sorted box indices
+     * @param worker Normalized worker index
+     * @param hash Zobrist hash of the state
+     * @param parent Id of the state it was reached from, or -1
+     * @param push Push used to reach it
+     * @param cost Number of pushes from the start
+     * @return Id of the new state, -1 if the state was already in the table, or FULL if its stripe is out of memory
+     */
+    public int addIfAbsent(int[] boxes, int worker, long hash, int parent, int push, int cost) {
+        int stripe = stripeOf(hash);
+        StateTable table = stripes[stripe];
+        synchronized(table) {
+            if(table.find(boxes, worker, hash) >= 0) return -1;
+            int id = table.add(boxes, worker, hash, parent, push, cost);
+            return id < 0 ? FULL : (id << STRIPE_BITS) | stripe;
+        }
+    }
+
+    /**
+     * Copy the boxes of a state into an array
+     */
+    public void getBoxes(int id, int[] into) {
+        StateTable table = stripes[id & STRIPE_MASK];
+        synchronized(table) {
+            table.getBoxes(id >>> STRIPE_BITS, into);
+        }
+    }
+
+    /**
+     * @return Normalized worker index of a state
+     */
+    public int getWorker(int id) {
+        StateTable table = stripes[id & STRIPE_MASK];
+        synchronized(table) {
+            return table.getWorker(id >>> STRIPE_BITS);
+        }
+    }
+
+    /**
+     * @return Id of the state a state was reached from, or -1
+     */
+    public int getParent(int id) {
+        StateTable table = stripes[id & STRIPE_MASK];
+        synchronized(table) {
+            return table.getParent(id >>> STRIPE_BITS);
+        }
+    }
+
+    /**
+     * @return Push used to reach a state
+     */
+    public int getPush(int id) {
+        StateTable table = stripes[id & STRIPE_MASK];
+        synchronized(table) {
+            return table.getPush(id >>> STRIPE_BITS);
+        }
+    }
+
+    /**
+     * @return Number of pushes from the start to a state
+     */
+    public int getCost(int id) {
+        StateTable table = stripes[id & STRIPE_MASK];
+        synchronized(table) {
+            return table.getCost(id >>> STRIPE_BITS);
+        }
+    }
+
+    /**
+     * @return Number of states stored
+     */
+    public int size() {
+        int size = 0;
+        for(StateTable table : stripes) {
+            synchronized(table) {
+                size += table.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return Approximate memory used by the table in bytes
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for(StateTable table : stripes) {
+            synchronized(table) {
+                bytes += table.memoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Pick a stripe from the high bits of a hash, StateTable uses the low bits for its slots
+     */
+    private static int stripeOf(long hash) {
+        return (int) (hash >>> (64 - STRIPE_BITS));
+    }
+}
@@ -0,0 +1,178 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.function.IntPredicate;
+
+/**
+ * Finds pushes that leave a level impossible to solve.
+ * Dead squares are cells a box can never be pushed from onto any shelf, such as
+ * corners and walls without a shelf. They only depend on the walls and shelves,
+ * so they are worked out once per level.
+ * A freeze deadlock is a box that can no longer move along either axis, because of
+ * walls, dead squares or other boxes that are stuck themselves, while not on a shelf.
+ * That depends on where the other boxes are, so it is checked after each push.
+ */
+public class DeadlockDetector {
+    private final int size;             //Number of cells on the board
+    private final boolean[] walls;      //Cells that are walls or outside the warehouse
+    private final boolean[] shelves;    //Cells that are shelves
+    private final int shelfCount;       //Number of shelves
+    private final boolean[] dead;       //Cells a box can never be pushed to a shelf from
+    private final int[] neighbours;     //Adjacent cell of each cell in each direction, cell * 4 + dir, -1 if off the board
+
+    private final int[] checked;        //Stamp of the freeze check that last visited each box
+    private int stamp;                  //Stamp of the current freeze check
+    private boolean offShelf;           //Whether the current freeze check found a stuck box that is not on a shelf
+
+    /**
+     * Constructor, works out the dead squares of a board
+     * @param board The board, only the walls and shelves are used
+     */
+    public DeadlockDetector(Board board) {
+        size = board.size();
+        walls = new boolean[size];
+        shelves = new boolean[size];
+        neighbours = new int[size * 4];
+        int count = 0;
+        for(int i = 0; i < size; i++) {
+            walls[i] = !board.contains(board.rowOf(i), board.colOf(i)) || board.isWall(i);
+            shelves[i] = board.isShelf(i);
+            if(shelves[i]) count++;
+            for(int dir = 0; dir < 4; dir++) {
+                int row = board.rowOf(i) + GameEngine.CROSS_OFFSETS[dir][1];
+                int col = board.colOf(i) + GameEngine.CROSS_OFFSETS[dir][0];
+                neighbours[i * 4 + dir] = board.contains(row, col) ? board.index(row, col) : -1;
+            }
+        }
+        shelfCount = count;
+        dead = findDeadSquares();
+        checked = new int[size];
+    }
+
+    /**
+     * Constructor for another detector of the same level, sharing its dead squares.
+     * Freeze checks use scratch space, so each thread needs its own detector.
+     * @param other Detector to share with
+     */
+    private DeadlockDetector(DeadlockDetector other) {
+        size = other.size;
+        walls = other.walls;
+        shelves = other.shelves;
+        shelfCount = other.shelfCount;
+        dead = other.dead;
+        neighbours = other.neighbours;
+        checked = new int[size];
+    }
+
+    /**
+     * @return A detector for the same level that can be used by another thread
+     */
+    public DeadlockDetector copy() {
+        return new DeadlockDetector(this);
+    }
+
+    /**
+     * Pull a box backwards from every shelf at once. Any cell it cannot be pulled to
+     * is a cell it could never be pushed to a shelf from.
+     * @return Dead square flag for each cell
+     */
+    private boolean[] findDeadSquares() {
+        boolean[] live = new boolean[size];
+        int[] queue = new int[size];
+        int head = 0, tail = 0;
+        for(int i = 0; i < size; i++) {
+            if(shelves[i] && !walls[i]) {
+                live[i] = true;
+                queue[tail++] = i;
+            }
+        }
+        while(head < tail) {
+            int box = queue[head++];
+            for(int dir = 0; dir < 4; dir++) {
+                int from = neighbours[box * 4 + dir];        //Where the box would have been pushed from
+                if(from < 0 || walls[from] || live[from]) continue;
+                int worker = neighbours[from * 4 + dir];     //Where the worker stood to push it
+                if(worker < 0 || walls[worker]) continue;
+                live[from] = true;
+                queue[tail++] = from;
+            }
+        }
+        boolean[] deadSquares = new boolean[size];
+        for(int i = 0; i < size; i++)
+            deadSquares[i] = !walls[i] && !live[i];
+        return deadSquares;
+    }
+
+    /**
+     * Is a cell a dead square? A box pushed there can never reach a shelf.
+     */
+    public boolean isDeadSquare(int index) {
+        return dead[index];
+    }
+
+    /**
+     * Check whether a box would be stuck for good, i.e. it, or a box it is wedged
+     * against, can no longer move in either axis and is not on a shelf.
+     * @param box Board index of the box that was just pushed
+     * @param hasBox Tells whether there is a box in a cell
+     * @return True if the level can no longer be solved
+     */
+    public boolean isFreezeDeadlock(int box, IntPredicate hasBox) {
+        stamp++;
+        offShelf = false;
+        return isFrozen(box, hasBox) && offShelf;
+    }
+
+    /**
+     * Check whether a push would leave the level impossible to solve,
+     * either by moving the box onto a dead square or freezing it off a shelf.
+     * Only when there are as many boxes as shelves, as a spare box may be parked anywhere.
+     * @param board The board before the push
+     * @param from Board index of the box
+     * @param to Board index the box would be pushed to
+     * @return True if the push would cause a deadlock
+     */
+    public boolean isDeadlockingPush(Board board, int from, int to) {
+        if(board.getBoxCount() != shelfCount) return false; //Spare boxes may be parked anywhere
+        if(dead[to]) return true;
+        return isFreezeDeadlock(to, (i) -> i == to || (i != from && board.hasBox(i)));
+    }
+
+    /**
+     * Check whether a box is stuck in both axes. Boxes already visited by this check
+     * are treated as walls, which stops boxes wedged against each other recursing forever.
+     */
+    private boolean isFrozen(int box, IntPredicate hasBox) {
+        checked[box] = stamp;
+        boolean frozen = isBlocked(box, 1, 3, hasBox)     //Right and left
+                && isBlocked(box, 0, 2, hasBox);          //Up and down
+        if(frozen && !shelves[box])
+            offShelf = true;
+        return frozen;
+    }
+
+    /**
+     * Check whether a box cannot move along one axis
+     * @param box Board index of the box
+     * @param dir1 Direction of one side of the axis
+     * @param dir2 Direction of the other side of the axis
+     */
+    private boolean isBlocked(int box, int dir1, int dir2, IntPredicate hasBox) {
+        int side1 = neighbours[box * 4 + dir1];
+        int side2 = neighbours[box * 4 + dir2];
+        if(isSolid(side1) || isSolid(side2)) return true;     //A wall on either side stops the box moving along the axis
+        if(dead[side1] && dead[side2]) return true;           //Moving either way would put it on a dead square
+        if(hasBox.test(side1) && isFrozen(side1, hasBox)) return true;
+        return hasBox.test(side2) && isFrozen(side2, hasBox);
+    }
+
+    /**
+     * Is a cell a wall, off the board, or a box already visited by the current check?
+     */
+    private boolean isSolid(int index) {
+        return index < 0 || walls[index] || checked[index] == stamp;
+    }
+}
@@ -0,0 +1,82 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+/**
+ * The four directions the worker can move in, with their row and column offsets worked out once.
+ * The ordinal of each direction is its index in GameEngine.CROSS_OFFSETS, so code that works
+ * with direction indexes and code that works with directions agree, and the opposite of
+ * direction d is always (d + 2) % 4.
+ * The GUI still names directions with strings such as "up", which of(String) turns into a direction.
+ */
+public enum Direction {
+    UP("up", -1, 0),
+    RIGHT("right", 0, 1),
+    DOWN("down", 1, 0),
+    LEFT("left", 0, -1);
+
+    private static final Direction[] VALUES = values(); //Directions by index, values() copies the array every call
+
+    public final String label;  //Name used by the GUI and the level files, e.g. "up"
+    public final int dRow;      //Change in row of a step in this direction
+    public final int dCol;      //Change in column of a step in this direction
+
+    Direction(String label, int dRow, int dCol) {
+        this.label = label;
+        this.dRow = dRow;
+        this.dCol = dCol;
+    }
+
+    /**
+     * @return The direction pointing the other way
+     */
+    public Direction opposite() {
+        return VALUES[(ordinal() + 2) & 3];
+    }
+
+    /**
+     * Get a direction from its index
+     * @param index Index of the direction in GameEngine.CROSS_OFFSETS
+     * @return The direction
+     */
+    public static Direction of(int index) {
+        return VALUES[index];
+    }
+
+    /**
+     * Get a direction from its label
+     * @param label Label of the direction, e.g. "up"
+     * @return The direction, or null if the label is not a direction
+     */
+    public static Direction of(String label) {
+        if(label == null) return null;
+        switch(label) {
+            case "up": return UP;
+            case "right": return RIGHT;
+            case "down": return DOWN;
+            case "left": return LEFT;
+            default: return null;
+        }
+    }
+
+    /**
+     * Get the direction of a step between two adjacent cells
+     * @return The direction, or null if the cells are not next to each other
+     */
+    public static Direction between(int fromRow, int fromCol, int toRow, int toCol) {
+        for(Direction direction : VALUES)
+            if(fromRow + direction.dRow == toRow && fromCol + direction.dCol == toCol)
+                return direction;
+        return null;
+    }
+
+    /**
+     * @return The label of the direction, e.g. "up"
+     */
+    @Override
+    public String toString() {
+        return label;
+    }
+}
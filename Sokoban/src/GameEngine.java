@@ -0,0 +1,279 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The rules of Sokoban, without any drawing.
+ * Owns the board and the worker, and applies moves, pushes and pulls to them.
+ * Anything that needs to know about changes, such as the GUI, subscribes as a GameListener.
+ */
+public class GameEngine {
+
+    public static final int[][] CROSS_OFFSETS = new int[][] { //Column and row offsets for finding adjacent cells in a cross pattern.
+            {0, -1}, //Up
+            {1, 0}, //Right
+            {0, 1}, //Down
+            {-1, 0} //Left
+    };
+
+    public static final String[] CROSS_OFFSET_NAMES = new String[] { //Offset names for finding adjacent cells in a cross pattern.
+            "up", "right", "down", "left"
+    };
+
+    public static final int NONE = 0; //Result of moveOrPush when the worker could not move
+    public static final int MOVE = 1; //Result of moveOrPush when the worker moved into a free cell
+    public static final int PUSH = 2; //Result of moveOrPush when the worker pushed a box
+
+    private Board board;                //The warehouse being played
+    private int worker;                 //Board index of the worker
+    private String workerDir = "left";  //The direction the worker is facing
+    private final List<GameListener> listeners = new ArrayList<>(); //Listeners to notify of changes
+    private boolean[] restoreMarks;     //Cells that should hold a box, used by restore
+
+    /**
+     * Load a board and put the worker at the board's starting position.
+     * @param board The board to play, owned by the engine from now on
+     */
+    public void load(Board board) {
+        this.board = board;
+        this.worker = board.getWorkerStart();
+        this.workerDir = "left";
+        this.restoreMarks = new boolean[board.size()];
+        for(GameListener listener : listeners)
+            listener.boardLoaded();
+    }
+
+    /**
+     * Subscribe to changes in the game.
+     */
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unsubscribe from changes in the game.
+     */
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return The board being played
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return Board index of the worker
+     */
+    public int getWorker() {
+        return worker;
+    }
+
+    /**
+     * @return Position of the worker
+     */
+    public Position getWorkerPos() {
+        return Position.of(board.rowOf(worker), board.colOf(worker));
+    }
+
+    /**
+     * @return The direction the worker is facing
+     */
+    public String getWorkerDir() {
+        return workerDir;
+    }
+
+    /**
+     * @return Index in CROSS_OFFSETS of the direction the worker is facing
+     */
+    public int getWorkerDirIndex() {
+        return directionIndex(workerDir);
+    }
+
+    /**
+     * Set the direction the worker is facing.
+     * @param direction The new direction of the worker, ignored if it is not valid
+     */
+    public void setWorkerDir(String direction) {
+        if(directionIndex(direction) >= 0) //Ensure direction is valid
+            workerDir = direction;
+    }
+
+    /**
+     * Returns true if all the shelves have boxes on them
+     */
+    public boolean isSolved() {
+        return board.isSolved();
+    }
+
+    /**
+     * Moves the worker in the given direction, if possible.
+     * If there is box in front of the worker and a space in front of the box,
+     * then push the box. The worker turns to face the direction even if it cannot move.
+     * @param direction The direction to move in, which must be valid
+     * @return PUSH if a box was pushed, MOVE if the worker moved, or NONE if it could not move
+     */
+    public int moveOrPush(String direction) {
+        int dir = directionIndex(direction);
+        if(dir < 0) throw new RuntimeException("Invalid direction: " + direction);
+        String oldDir = workerDir;
+        workerDir = direction;                          //Turn worker to face in this direction
+        int row = board.rowOf(worker);
+        int col = board.colOf(worker);
+        int nextRow = row + CROSS_OFFSETS[dir][1];      //Where the worker would move to
+        int nextCol = col + CROSS_OFFSETS[dir][0];
+
+        //Is there a box in that direction which can be pushed?
+        if(board.hasBox(nextRow, nextCol) && board.isFree(nextRow + CROSS_OFFSETS[dir][1], nextCol + CROSS_OFFSETS[dir][0])) {
+            push(direction);
+            return PUSH;
+        }
+        //Is the next cell free for the worker to move into?
+        if(board.isFree(nextRow, nextCol)) {
+            move(direction);
+            return MOVE;
+        }
+        if(!direction.equals(oldDir))
+            fireWorkerMoved(worker, worker);            //Turned without moving, so the worker is drawn facing the wall
+        return NONE;
+    }
+
+    /**
+     * Find the box that moveOrPush would push in a direction
+     * @param direction The direction to move in
+     * @return Board index of the box, or -1 if moving that way would not push a box
+     */
+    public int pushedBox(String direction) {
+        int dir = directionIndex(direction);
+        if(dir < 0) throw new RuntimeException("Invalid direction: " + direction);
+        int nextRow = board.rowOf(worker) + CROSS_OFFSETS[dir][1];
+        int nextCol = board.colOf(worker) + CROSS_OFFSETS[dir][0];
+        if(board.hasBox(nextRow, nextCol) && board.isFree(nextRow + CROSS_OFFSETS[dir][1], nextCol + CROSS_OFFSETS[dir][0]))
+            return board.index(nextRow, nextCol);
+        return -1;
+    }
+
+    /**
+     * Moves the worker into the next cell (guaranteed to be empty)
+     * @param direction The direction the worker is heading
+     */
+    public void move(String direction) {
+        int from = worker;
+        worker = neighbour(worker, directionIndex(direction));
+        fireWorkerMoved(from, worker);
+    }
+
+    /**
+     * Moves the worker, pushing the box one step
+     * @param direction The direction the worker is heading
+     */
+    public void push(String direction) {
+        int dir = directionIndex(direction);
+        int boxPos = neighbour(worker, dir);           //Where box is
+        int newBoxPos = neighbour(boxPos, dir);        //Where box will go
+
+        board.moveBox(boxPos, newBoxPos);
+        fireCellChanged(boxPos);
+        fireCellChanged(newBoxPos);
+
+        int from = worker;
+        worker = boxPos;                               //Put worker in new position
+        fireWorkerMoved(from, worker);
+    }
+
+    /**
+     * Moves the worker in the direction, pulling the box behind it into the worker's old position
+     * @param direction The direction the worker is heading
+     */
+    public void pull(String direction) {
+        int dir = directionIndex(direction);
+        int boxPos = neighbour(worker, (dir + 2) % 4); //Where box is
+        int newBoxPos = worker;                        //Where box will go
+
+        board.moveBox(boxPos, newBoxPos);
+        fireCellChanged(boxPos);
+        fireCellChanged(newBoxPos);
+
+        int from = worker;
+        worker = neighbour(worker, dir);               //Put worker in new position
+        fireWorkerMoved(from, worker);
+    }
+
+    /**
+     * Put the boxes and worker straight into a saved state, such as a point in the history.
+     * Only the cells whose box changed are reported to listeners, so only they get redrawn.
+     * @param boxes Board indices of every box in the state, in any order
+     * @param worker Board index of the worker in the state
+     * @param direction The direction the worker should face
+     */
+    public void restore(int[] boxes, int worker, String direction) {
+        if(boxes.length != board.getBoxCount()) throw new RuntimeException("State has " + boxes.length + " boxes, board has " + board.getBoxCount());
+        for(int box : boxes)
+            restoreMarks[box] = true;
+        for(int i = 0; i < restoreMarks.length; i++) {
+            if(board.hasBox(i) != restoreMarks[i]) {
+                if(restoreMarks[i]) board.addBox(i);
+                else board.removeBox(i);
+                fireCellChanged(i);
+            }
+            restoreMarks[i] = false;
+        }
+
+        setWorkerDir(direction);
+        int from = this.worker;
+        this.worker = worker;
+        fireWorkerMoved(from, worker);
+    }
+
+    /**
+     * Get the board index of the cell next to a cell
+     * @param index Index of the cell
+     * @param dir Index of the direction in CROSS_OFFSETS
+     * @return Index of the adjacent cell
+     */
+    public int neighbour(int index, int dir) {
+        return index + CROSS_OFFSETS[dir][1] * board.getCols() + CROSS_OFFSETS[dir][0];
+    }
+
+    /**
+     * Get the index of a direction name in CROSS_OFFSETS
+     * @param direction Name of the direction, e.g. "up"
+     * @return Index of the direction, or -1 if it is not valid
+     */
+    public static int directionIndex(String direction) {
+        Direction dir = Direction.of(direction);
+        return dir == null ? -1 : dir.ordinal();
+    }
+
+    /**
+     * Returns the direction that is opposite of the parameter
+     */
+    public static String opposite(String direction) {
+        Direction dir = Direction.of(direction);
+        if(dir == null) throw new RuntimeException("Invalid  direction");
+        return dir.opposite().label;
+    }
+
+    /**
+     * Notify listeners that a cell has changed
+     */
+    private void fireCellChanged(int index) {
+        for(GameListener listener : listeners)
+            listener.cellChanged(index);
+    }
+
+    /**
+     * Notify listeners that the worker has moved
+     */
+    private void fireWorkerMoved(int from, int to) {
+        for(GameListener listener : listeners)
+            listener.workerMoved(from, to);
+    }
+}
@@ -0,0 +1,30 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+/**
+ * Listener for changes made to a game by a GameEngine.
+ * Used by the GUI to redraw the parts of the warehouse that have changed.
+ */
+public interface GameListener {
+
+    /**
+     * Called when a new board has been loaded into the engine.
+     */
+    void boardLoaded();
+
+    /**
+     * Called when a box has been added to or removed from a cell.
+     * @param index Board index of the cell that changed
+     */
+    void cellChanged(int index);
+
+    /**
+     * Called when the worker has moved, or turned to face a new direction.
+     * @param from Board index the worker moved from
+     * @param to Board index the worker moved to
+     */
+    void workerMoved(int from, int to);
+}
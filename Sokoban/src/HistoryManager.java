@@ -3,37 +3,154 @@
  * Username: CorfiaMatt
  * ID: 300447277
  */
-import java.util.Stack;
 
 /**
  * Class to assist store and execute undo/redo actions.
+ * Actions are packed into single bytes (see ActionRecord.encode) and kept in a ring buffer
+ * from the oldest action to the newest. A cursor marks how many of them are done, the ones
+ * after it can be redone. Storing, undoing and redoing are constant time and don't allocate,
+ * and once the buffer is full the oldest action is dropped to make room.
+ *
+ * Every SNAPSHOT_INTERVAL actions the box positions and worker are saved, as well as the state
+ * before the oldest action. To jump to any step the nearest saved state before it is replayed
+ * forward without touching the board, and the result is put on the board in one go, so a jump
+ * costs at most SNAPSHOT_INTERVAL steps however long the history is.
  */
-public class HistoryManager {
-    private Sokoban sokobanInstance; //Instance of the Sokoban game to execute actions on.
+public class HistoryManager implements GameListener {
+    public static final int SNAPSHOT_INTERVAL = 256; //Number of actions between saved states
+
+    private GameEngine engine; //Engine of the Sokoban game to execute actions on.
     private int maxHistoryLength; //Maximum number of actions that will be stored for undo and redo.
-    private Stack<ActionRecord> undoMemory = new Stack<>(); //Stack to store actions that can be undone
-    private Stack<ActionRecord> redoMemory = new Stack<>(); //Stack to store actions that can be redone
+    private final byte[] actions; //Ring buffer of encoded actions, its length is a power of two
+    private final int mask; //Mask to wrap an index into the ring buffer
+    private int start; //Index in the ring buffer of the oldest action
+    private int cursor; //Number of actions that are done and can be undone, counted from the oldest
+    private int length; //Number of actions stored, the ones past the cursor can be redone
+    private int base; //Step number of the state before the oldest action, counting from the start of the level
+
+    private final int[][] snapshotBoxes; //Boxes saved at every step number that is a multiple of SNAPSHOT_INTERVAL, in a ring
+    private final int[] snapshotWorkers; //Worker saved with each of the snapshotBoxes
+    private int[] tailBoxes; //Boxes before the oldest action
+    private int tailWorker; //Worker before the oldest action
+    private String tailDirection; //Direction the worker faced before the oldest action
+    private int[] jumpBoxes; //Boxes of the state being rebuilt by a jump
 
-    HistoryManager(Sokoban sokobanInstance, int maxHistoryLength) {
-        this.sokobanInstance = sokobanInstance;
+    HistoryManager(GameEngine engine, int maxHistoryLength) {
+        this.engine = engine;
         this.maxHistoryLength = maxHistoryLength;
+        int capacity = Integer.highestOneBit(Math.max(1, maxHistoryLength - 1)) << 1; //Round up to a power of two
+        actions = new byte[capacity];
+        mask = capacity - 1;
+        snapshotBoxes = new int[maxHistoryLength / SNAPSHOT_INTERVAL + 2][];
+        snapshotWorkers = new int[snapshotBoxes.length];
+        engine.addListener(this);
+        if(engine.getBoard() != null)
+            boardLoaded();
     }
 
     /**
-     * Getter method for the maximum length of the history stack,
+     * Getter method for the maximum length of the history,
      * @return Integer value of maximum length of history.
      */
     public int getMaxHistoryLength() {
         return maxHistoryLength;
     }
 
+    /**
+     * @return Number of actions that can be undone
+     */
+    public int getUndoCount() {
+        return cursor;
+    }
+
+    /**
+     * @return Total number of actions stored, done or undone
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * @return Number of actions that can be redone
+     */
+    public int getRedoCount() {
+        return length - cursor;
+    }
+
+    /**
+     * @return Step number of the oldest stored state, counting from the start of the level, 0 unless old actions were dropped
+     */
+    public int getFirstStep() {
+        return base;
+    }
+
+    /**
+     * Copy the actions that can be undone
+     * @return The encoded actions, oldest first
+     */
+    public byte[] getDoneActions() {
+        byte[] done = new byte[cursor];
+        for(int i = 0; i < cursor; i++)
+            done[i] = actions[(start + i) & mask];
+        return done;
+    }
+
+    /**
+     * Get a stored action
+     * @param i Position of the action, 0 for the oldest
+     * @return The encoded action
+     */
+    public byte getAction(int i) {
+        if(i < 0 || i >= length) throw new RuntimeException("No action " + i + " in history");
+        return actions[(start + i) & mask];
+    }
+
     /**
      * Store an action so it can be undone in the future.
+     * Call this after the action has been done, so the board holds the state after it.
      * @param action The action to store in the undo history.
      */
     public void storeAction(ActionRecord action) {
-        undoMemory.push(action);
-        redoMemory.clear(); //Empty redo stack when a new action is added to the undo stack.
+        storeAction(action.encode());
+    }
+
+    /**
+     * Store an action so it can be undone in the future, without allocating a record.
+     * @param push Whether the action is a push
+     * @param dir Direction index of the action
+     */
+    public void storeAction(boolean push, int dir) {
+        storeAction(ActionRecord.encode(push, dir));
+    }
+
+    /**
+     * Store an encoded action, dropping the redo history and, if full, the oldest action.
+     */
+    private void storeAction(byte code) {
+        if(cursor == maxHistoryLength) { //Full, forget the oldest action
+            byte oldest = actions[start];
+            tailWorker = replay(tailBoxes, tailWorker, oldest); //The saved state before the oldest action moves along one
+            tailDirection = GameEngine.CROSS_OFFSET_NAMES[ActionRecord.direction(oldest)];
+            start = (start + 1) & mask;
+            base++;
+            cursor--;
+        }
+        actions[(start + cursor) & mask] = code;
+        cursor++;
+        length = cursor; //Anything that could be redone is gone once a new action is done
+        if((base + cursor) % SNAPSHOT_INTERVAL == 0)
+            saveSnapshot(base + cursor);
+    }
+
+    /**
+     * Save the state on the board as the snapshot for a step number
+     */
+    private void saveSnapshot(int step) {
+        int slot = (step / SNAPSHOT_INTERVAL) % snapshotBoxes.length;
+        if(snapshotBoxes[slot] == null || snapshotBoxes[slot].length != tailBoxes.length)
+            snapshotBoxes[slot] = new int[tailBoxes.length];
+        engine.getBoard().getBoxes(snapshotBoxes[slot]);
+        snapshotWorkers[slot] = engine.getWorker();
     }
 
     /**
@@ -41,70 +158,155 @@ public class HistoryManager {
      */
     public void clearHistory()
     {
-        redoMemory.clear();
-        undoMemory.clear();
+        start = 0;
+        cursor = 0;
+        length = 0;
+        base = 0;
+        if(engine.getBoard() == null) return;
+
+        Board board = engine.getBoard(); //The state on the board is where the history now starts
+        if(tailBoxes == null || tailBoxes.length != board.getBoxCount()) {
+            tailBoxes = new int[board.getBoxCount()];
+            jumpBoxes = new int[board.getBoxCount()];
+        }
+        board.getBoxes(tailBoxes);
+        tailWorker = engine.getWorker();
+        tailDirection = engine.getWorkerDir();
+        saveSnapshot(0);
     }
 
     /**
-     * Undoes a movement or push and puts the action on the redo stack
+     * Jump straight to a point in the history, as if undoing or redoing every action in between.
+     * Only the cells that differ are redrawn.
+     * @param step Number of actions done at that point, from 0 for the oldest stored state up to size()
+     * @return Boolean indicating whether the step is in the history
+     */
+    public boolean jumpTo(int step) {
+        if(step < 0 || step > length) return false;
+
+        int target = base + step;
+        int from = target - target % SNAPSHOT_INTERVAL;
+        int worker;
+        if(from <= base) { //Snapshot before the oldest action is gone, start from the saved oldest state
+            from = base;
+            System.arraycopy(tailBoxes, 0, jumpBoxes, 0, jumpBoxes.length);
+            worker = tailWorker;
+        }
+        else {
+            int slot = (from / SNAPSHOT_INTERVAL) % snapshotBoxes.length;
+            System.arraycopy(snapshotBoxes[slot], 0, jumpBoxes, 0, jumpBoxes.length);
+            worker = snapshotWorkers[slot];
+        }
+        for(int i = from - base; i < step; i++) //Replay the actions after the saved state
+            worker = replay(jumpBoxes, worker, actions[(start + i) & mask]);
+
+        String direction = step == 0 ? tailDirection : GameEngine.CROSS_OFFSET_NAMES[ActionRecord.direction(actions[(start + step - 1) & mask])];
+        engine.restore(jumpBoxes, worker, direction);
+        cursor = step;
+        return true;
+    }
+
+    /**
+     * Jump back to just before the most recent push that has not been undone
+     * @return Boolean indicating whether there was a push to undo
+     */
+    public boolean undoToLastPush() {
+        for(int i = cursor - 1; i >= 0; i--)
+            if(ActionRecord.isPush(actions[(start + i) & mask]))
+                return jumpTo(i);
+        return false;
+    }
+
+    /**
+     * Apply an action to a saved state without touching the board
+     * @param boxes Board indices of the boxes, updated if the action is a push
+     * @param worker Board index of the worker
+     * @param action The encoded action
+     * @return Board index of the worker after the action
+     */
+    private int replay(int[] boxes, int worker, byte action) {
+        int dir = ActionRecord.direction(action);
+        int next = engine.neighbour(worker, dir);
+        if(ActionRecord.isPush(action)) {
+            for(int i = 0; i < boxes.length; i++) {
+                if(boxes[i] == next) {
+                    boxes[i] = engine.neighbour(next, dir);
+                    break;
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Undoes a movement or push, keeping it to be redone
      * @return Boolean indicating whether there was anything to undo
      */
     public boolean undoAction() {
-        if(undoMemory.size() == 0) return false; //If there are no items on the undo stack return false.
-        ActionRecord record = undoMemory.pop();
-        limitedStackPush(redoMemory, record); //Push record onto redo stack
-        applyReverseAction(record);
+        if(cursor == 0) return false; //If there is nothing to undo return false.
+        cursor--;
+        applyReverseAction(actions[(start + cursor) & mask]);
         return true; //Undo success
     }
 
     /**
-     * Redoes a movement or push and puts the action on the undo stack
+     * Redoes a movement or push, keeping it to be undone
      * @return Boolean indicating whether there was anything to redo
      */
     public boolean redoAction() {
-        if(redoMemory.size() == 0) return false; //If there are no items on the redo stack return false.
-        ActionRecord record = redoMemory.pop();
-        limitedStackPush(undoMemory, record); //Push record onto undo stack
-        applyAction(record);
+        if(cursor == length) return false; //If there is nothing to redo return false.
+        applyAction(actions[(start + cursor) & mask]);
+        cursor++;
         return true; //Redo success
     }
 
     /**
-     * Pushes an ActionRecord object onto a stack and removes the last
-     * element in the stack if the maximum history length has been reached.
-     * @param stack The stack to push onto.
-     * @param action The action to be pushed onto the stack.
+     * Execute the reverse of the specified action in-game for the current game engine.
+     * E.g an action with the direction "up" will move the worker down.
+     * @param action The encoded action to be reversed and executed.
      */
-    private void limitedStackPush(Stack<ActionRecord> stack, ActionRecord action) {
-        if(stack.size() >= maxHistoryLength) //Check if stack has reached item limit
-            stack.remove(stack.size() - 1); //Remove last element on stack
-
-        stack.push(action);
+    private void applyReverseAction(byte action) {
+        int dir = ActionRecord.direction(action);
+        String direction = GameEngine.CROSS_OFFSET_NAMES[(dir + 2) % 4]; //Get the opposite direction to the direction of the action
+        engine.setWorkerDir(GameEngine.CROSS_OFFSET_NAMES[dir]); //Set the graphical direction of the worker
+        if(ActionRecord.isPush(action))
+            engine.pull(direction);
+        else
+            engine.move(direction);
     }
 
     /**
-     * Execute the reverse of the specified action in-game for the current Sokoban Instance.
-     * E.g an action with the direction "up" will move the worker down.
-     * @param action The action to be reversed and executed.
+     * Execute a recorded action in-game for the current game engine.
+     * @param action The encoded action to be executed
      */
-    private void applyReverseAction(ActionRecord action) {
-        String direction = sokobanInstance.opposite(action.direction()); //Get the opposite direction to the direction in the action object
-        sokobanInstance.setWorkerDir(action.direction()); //Set the graphical direction of the worker
-        if(action.isMove())
-            sokobanInstance.move(direction);
+    private void applyAction(byte action) {
+        String direction = GameEngine.CROSS_OFFSET_NAMES[ActionRecord.direction(action)];
+        engine.setWorkerDir(direction);
+        if(ActionRecord.isPush(action))
+            engine.push(direction);
         else
-            sokobanInstance.pull(direction);
+            engine.move(direction);
     }
 
     /**
-     * Execute a recorded action in-game for the current Sokoban instance..
-     * @param action The action to be executed
+     * A new board was loaded, the history starts again from it
      */
-    private void applyAction(ActionRecord action) {
-        sokobanInstance.setWorkerDir(action.direction());
-        if(action.isMove())
-            sokobanInstance.move(action.direction());
-        else
-            sokobanInstance.push(action.direction());
+    @Override
+    public void boardLoaded() {
+        clearHistory();
+    }
+
+    /**
+     * Boxes are recorded through storeAction, nothing to do
+     */
+    @Override
+    public void cellChanged(int index) {
+    }
+
+    /**
+     * Moves are recorded through storeAction, nothing to do
+     */
+    @Override
+    public void workerMoved(int from, int to) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,302 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Makes random levels that can always be solved.
+ * Rooms are carved out of solid wall and joined by corridors, then every box is put on a
+ * shelf, which is a solved warehouse. The worker then plays the game backwards: it walks to
+ * boxes and pulls them away from the shelves, the same move as GameEngine.pull. Every pull is
+ * undone by a push, so pushing the boxes back along the pulls solves the level.
+ *
+ * The warehouse file format has no character for a box on a shelf or the worker on a shelf,
+ * so boxes still on shelves are pulled off first, and the worker ends on a free floor cell.
+ * Each run of pulls is chosen from the pulls the worker can make from the cells near it, found by
+ * a search that stops early, over arrays that are kept between levels, so a level of 100x100
+ * takes about a millisecond.
+ *
+ * Run from the command line as
+ *   java LevelGenerator [-rows n] [-cols n] [-boxes n] [-seed n] [-count n] [-out directory] [-first n]
+ * which writes warehouse(first).txt, warehouse(first + 1).txt, ... into the directory, or only
+ * times the generator if no directory is given.
+ */
+public class LevelGenerator {
+    private static final int MIN_ROOM = 3;      //Smallest room width and height, inside the walls
+    private static final int MAX_ROOM = 10;     //Largest room width and height, inside the walls
+    private static final int CELLS_PER_ROOM = 40; //Cells of warehouse for each room tried
+    private static final int RUNS_PER_BOX = 4;  //Runs of pulls for each box, after the boxes are off the shelves
+    private static final int MAX_RUN = 6;       //Most pulls in a run
+    private static final int ATTEMPTS = 20;     //Layouts tried before giving up
+    private static final int LOCAL_REGION = 128; //Cells of the region searched to choose most runs
+    private static final int MIN_REGION = 12;   //Smallest region a run may leave the worker in, smaller ones are taken back
+
+    private final Random random;    //Source of every choice, so a seed always gives the same levels
+    private byte[] flags;           //Cells of the warehouse being made, Board flags
+    private int[] region;           //Stamp of the search that last reached each cell
+    private int[] queue;            //Queue for the region search, the reached cells are left in it
+    private int regionSize;         //Number of cells the last search reached
+    private boolean regionCut;      //True if the last search stopped before it reached the whole region
+    private int[] pulls;            //Pulls the worker can make from the last region searched, worker cell * 4 + direction
+    private int pullCount;          //Number of pulls found
+    private int stamp;              //Stamp of the last region search
+    private int cols;               //Width of the warehouse being made
+
+    /**
+     * Constructor
+     * @param seed Seed of the random choices, the same seed makes the same levels in the same order
+     */
+    public LevelGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Make a level
+     * @param rows Height of the warehouse, including the outside walls, at least 5
+     * @param cols Width of the warehouse, including the outside walls, at least 5
+     * @param boxes Number of boxes, and shelves
+     * @return The level, with the worker start position set
+     */
+    public Board generate(int rows, int cols, int boxes) {
+        if(rows < 5 || cols < 5) throw new RuntimeException("Warehouse must be at least 5x5, not " + rows + "x" + cols);
+        if(boxes < 1) throw new RuntimeException("Need at least one box");
+        this.cols = cols;
+        if(flags == null || flags.length != rows * cols) {
+            flags = new byte[rows * cols];
+            region = new int[rows * cols];
+            queue = new int[rows * cols];
+            pulls = new int[rows * cols * 4];
+        }
+
+        for(int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            carveRooms(rows, cols);
+            int worker = placeBoxes(boxes);
+            if(worker < 0) continue; //Not enough floor
+            worker = pullBoxes(worker, boxes);
+            if(worker >= 0) return Board.fromFlags(rows, cols, flags.clone(), worker);
+        }
+        throw new RuntimeException("Could not make a " + rows + "x" + cols + " level with " + boxes + " boxes");
+    }
+
+    /**
+     * Fill the warehouse with wall, then carve rooms, each joined to the one before by a corridor
+     */
+    private void carveRooms(int rows, int cols) {
+        Arrays.fill(flags, Board.WALL);
+        int rooms = Math.max(1, rows * cols / CELLS_PER_ROOM / 4);
+        int lastRow = -1, lastCol = -1;
+        for(int i = 0; i < rooms; i++) {
+            int height = Math.min(rows - 2, MIN_ROOM + random.nextInt(MAX_ROOM - MIN_ROOM + 1));
+            int width = Math.min(cols - 2, MIN_ROOM + random.nextInt(MAX_ROOM - MIN_ROOM + 1));
+            int top = 1 + random.nextInt(rows - 1 - height);
+            int left = 1 + random.nextInt(cols - 1 - width);
+            for(int row = top; row < top + height; row++)
+                for(int col = left; col < left + width; col++)
+                    flags[row * cols + col] = 0;
+
+            int row = top + random.nextInt(height), col = left + random.nextInt(width);
+            if(lastRow >= 0) { //Corridor to the room before, across then down or down then across
+                int turnRow = random.nextBoolean() ? row : lastRow;
+                int turnCol = turnRow == row ? lastCol : col;
+                carveLine(row, col, turnRow, turnCol);
+                carveLine(turnRow, turnCol, lastRow, lastCol);
+            }
+            lastRow = row;
+            lastCol = col;
+        }
+    }
+
+    /**
+     * Carve a straight corridor between two cells in the same row or column
+     */
+    private void carveLine(int fromRow, int fromCol, int toRow, int toCol) {
+        int dRow = Integer.signum(toRow - fromRow), dCol = Integer.signum(toCol - fromCol);
+        for(int row = fromRow, col = fromCol; ; row += dRow, col += dCol) {
+            flags[row * cols + col] = 0;
+            if(row == toRow && col == toCol) return;
+        }
+    }
+
+    /**
+     * Put a box on a shelf in random floor cells, which is the solved warehouse, and choose the worker's cell
+     * @return Index of the worker, or -1 if there is not enough floor
+     */
+    private int placeBoxes(int boxes) {
+        int floor = 0;
+        for(int i = 0; i < flags.length; i++)
+            if(flags[i] == 0) queue[floor++] = i;
+        if(floor < boxes * 2 + 1) return -1; //Room for the boxes to come off the shelves, and the worker
+
+        for(int i = 0; i <= boxes; i++) { //Shuffle just the cells that are used
+            int j = i + random.nextInt(floor - i);
+            int swap = queue[i]; queue[i] = queue[j]; queue[j] = swap;
+        }
+        for(int i = 0; i < boxes; i++)
+            flags[queue[i]] = Board.SHELF | Board.BOX;
+        return queue[boxes];
+    }
+
+    /**
+     * Play backwards from the solved warehouse, pulling boxes in runs.
+     * While boxes are on shelves the worker goes to the nearest one and pulls it off, then
+     * it pulls boxes near it at random. A run that shuts the worker in is taken back.
+     * @return Index of the worker at the start of the level, or -1 if a box could not be pulled off its shelf
+     */
+    private int pullBoxes(int worker, int boxes) {
+        int onShelves = boxes; //Boxes still on their shelves
+        int runs = boxes * RUNS_PER_BOX;
+        int lastBox = -1, lastWorker = -1, lastCell = -1; //Where the box and worker were before the last run, and where the box went
+        for(int run = 0; run < runs * 4 && (run < runs || onShelves > 0); run++) { //Extra runs to clear the shelves, but not forever
+            findRegion(worker, onShelves > 0 ? Integer.MAX_VALUE : LOCAL_REGION, onShelves > 0);
+            if(pullCount == 0 || !regionCut && regionSize < MIN_REGION) { //Shut in, take the last run back
+                if(lastBox < 0) break;
+                flags[lastCell] &= ~Board.BOX;
+                flags[lastBox] |= Board.BOX;
+                if((flags[lastCell] & Board.SHELF) != 0) onShelves--;
+                if((flags[lastBox] & Board.SHELF) != 0) onShelves++;
+                worker = lastWorker;
+                lastBox = -1;
+                continue;
+            }
+
+            int pull = pulls[random.nextInt(pullCount)];
+            worker = pull >> 2; //Walking inside the region moves no box, so it is not played
+            int step = offset(pull & 3);
+            lastBox = worker - step;
+            lastWorker = worker;
+            int length = 1 + random.nextInt(MAX_RUN);
+            for(int i = 0; i < length && isFree(worker + step); i++) {
+                int box = worker - step;
+                flags[box] &= ~Board.BOX; //Same move as GameEngine.pull
+                flags[worker] |= Board.BOX;
+                if((flags[box] & Board.SHELF) != 0) onShelves--;
+                if((flags[worker] & Board.SHELF) != 0) onShelves++;
+                worker += step;
+            }
+            lastCell = worker - step;
+        }
+        if(onShelves > 0) return -1;
+
+        findRegion(worker, LOCAL_REGION, false); //End on a cell of the region that is not a shelf
+        for(int tries = 0; tries < regionSize; tries++) {
+            int cell = queue[random.nextInt(regionSize)];
+            if((flags[cell] & Board.SHELF) == 0) return cell;
+        }
+        for(int i = 0; i < regionSize; i++)
+            if((flags[queue[i]] & Board.SHELF) == 0) return queue[i];
+        return -1;
+    }
+
+    /**
+     * @return Change in board index of a step in a direction
+     */
+    private int offset(int dir) {
+        return GameEngine.CROSS_OFFSETS[dir][1] * cols + GameEngine.CROSS_OFFSETS[dir][0];
+    }
+
+    /**
+     * Is a cell free for the worker or a box to move into?
+     */
+    private boolean isFree(int index) {
+        return (flags[index] & (Board.WALL | Board.BOX)) == 0;
+    }
+
+    /**
+     * Find the cells the worker can walk to without moving a box, nearest first, marking them
+     * with a new stamp, and the pulls it can make from them: a box on one side and a free cell on the other
+     * @param worker Cell the search starts from
+     * @param limit Most cells to find
+     * @param offShelf True to find only pulls of boxes on shelves, stopping at the nearest cell with any
+     */
+    private void findRegion(int worker, int limit, boolean offShelf) {
+        stamp++;
+        pullCount = 0;
+        int head = 0, tail = 0;
+        boolean full = false; //Whether a cell was left out for the limit
+        region[worker] = stamp;
+        queue[tail++] = worker;
+        while(head < tail && !(offShelf && pullCount > 0)) {
+            int cell = queue[head++];
+            for(int dir = 0; dir < 4; dir++) {
+                int step = offset(dir);
+                int next = cell + step; //Never off the board, the edge is wall
+                if(!isFree(next)) continue;
+                if(region[next] != stamp) {
+                    if(tail < limit) {
+                        region[next] = stamp;
+                        queue[tail++] = next;
+                    }
+                    else full = true;
+                }
+                int box = cell - step;
+                if((flags[box] & Board.BOX) != 0 && (!offShelf || (flags[box] & Board.SHELF) != 0))
+                    pulls[pullCount++] = cell * 4 + dir;
+            }
+        }
+        regionSize = tail;
+        regionCut = full || head < tail;
+    }
+
+    /**
+     * Write a level in the warehouse file format
+     * @param board The level, with no boxes on shelves and the worker not on a shelf
+     * @return Lines of the file, one per row
+     */
+    public static List<String> toLines(Board board) {
+        List<String> lines = new ArrayList<>();
+        for(int row = 0; row < board.getRows(); row++) {
+            StringBuilder line = new StringBuilder(board.getCols());
+            for(int col = 0; col < board.getCols(); col++) {
+                int index = board.index(row, col);
+                if(board.isShelf(index) && (board.hasBox(index) || index == board.getWorkerStart()))
+                    throw new RuntimeException("The warehouse file format cannot hold a box or the worker on a shelf, at " + row + "," + col);
+                if(index == board.getWorkerStart()) line.append('w');
+                else if(board.isWall(index)) line.append('#');
+                else if(board.hasBox(index)) line.append('b');
+                else if(board.isShelf(index)) line.append('s');
+                else line.append('.');
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int rows = 100, cols = 100, boxes = 30, count = 100, first = 1;
+        long seed = 1;
+        File out = null;
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-rows": rows = Integer.parseInt(args[++i]); break;
+                case "-cols": cols = Integer.parseInt(args[++i]); break;
+                case "-boxes": boxes = Integer.parseInt(args[++i]); break;
+                case "-seed": seed = Long.parseLong(args[++i]); break;
+                case "-count": count = Integer.parseInt(args[++i]); break;
+                case "-out": out = new File(args[++i]); break;
+                case "-first": first = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Usage: java LevelGenerator [-rows n] [-cols n] [-boxes n] [-seed n] [-count n] [-out directory] [-first n]");
+                    System.exit(2);
+            }
+        }
+
+        LevelGenerator generator = new LevelGenerator(seed);
+        long start = System.nanoTime();
+        for(int i = 0; i < count; i++) {
+            Board board = generator.generate(rows, cols, boxes);
+            if(out != null)
+                Files.write(new File(out, "warehouse" + (first + i) + ".txt").toPath(), toLines(board));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d levels of %dx%d with %d boxes in %.3f s, %.0f levels/s", count, rows, cols, boxes, seconds, count / seconds));
+    }
+}
@@ -0,0 +1,221 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A file of many levels, such as a standard XSB level pack, or a single warehouse file.
+ * Levels are separated by blank lines or by lines that are not part of a board, such as
+ * "; 12" or "Title: ...", which are ignored.
+ *
+ * The first time a pack is opened every level is parsed and saved in a binary cache file
+ * next to it. The cache is memory-mapped, so getting any level, even number 4,000, is a copy
+ * of its cell flags with no text to read or parse.
+ * The cache's name holds the pack's modified time and length (pack name + ".<modified>-<length>.cache"),
+ * so a pack that changes gets a cache of its own. A file that is mapped can't be replaced or deleted on
+ * every system, and Java has no way to unmap one, so a cache is never written over; caches of older
+ * versions of the pack are deleted when they are no longer mapped.
+ *
+ * Cache layout: magic, version, pack length, pack modified time, level count, the file offset
+ * of each level, then for each level its rows, cols, worker index and one flag byte per cell.
+ */
+public class LevelPack {
+    private static final int MAGIC = 0x534B4243;    //"SKBC", marks a cache file
+    private static final int VERSION = 1;           //Version of the cache layout
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4; //Bytes before the level offsets
+
+    private final File file;                //The pack
+    private final MappedByteBuffer cache;   //The cache file, mapped into memory
+    private final int count;                //Number of levels in the pack
+
+    /**
+     * Open a pack, building its cache if it is missing or out of date
+     * @param file The pack
+     * @throws IOException If the pack or cache could not be read or written
+     */
+    public LevelPack(File file) throws IOException {
+        this.file = file;
+        File cacheFile = cacheFile(file);
+        if(!isCurrent(file, cacheFile))
+            buildCache(file, cacheFile);
+        deleteOldCaches(file, cacheFile);
+        this.cache = map(cacheFile);
+        this.count = cache.getInt(HEADER_SIZE - 4);
+    }
+
+    /**
+     * Get the cache file for a pack as it is now
+     * @param pack The pack
+     * @return The cache file, named for the pack's modified time and length
+     */
+    public static File cacheFile(File pack) {
+        return new File(pack.getPath() + "." + Long.toHexString(pack.lastModified()) + "-" + pack.length() + ".cache");
+    }
+
+    /**
+     * @return Name of the pack file, without the directory
+     */
+    public String getName() {
+        return file.getName();
+    }
+
+    /**
+     * @return Number of levels in the pack
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get a level from the cache
+     * @param number Number of the level, from 1
+     * @return A new board for the level
+     */
+    public Board getLevel(int number) {
+        if(number < 1 || number > count) throw new RuntimeException("No level " + number + " in " + getName() + ", it has " + count);
+        int offset = (int) cache.getLong(HEADER_SIZE + (number - 1) * 8);
+        int rows = cache.getInt(offset);
+        int cols = cache.getInt(offset + 4);
+        int worker = cache.getInt(offset + 8);
+
+        byte[] flags = new byte[rows * cols];
+        ByteBuffer cells = cache.duplicate(); //Own position, so levels can be read from more than one thread
+        cells.position(offset + 12);
+        cells.get(flags);
+        return Board.fromFlags(rows, cols, flags, worker);
+    }
+
+    /**
+     * Map a cache file into memory
+     * @return The mapped file
+     */
+    private static MappedByteBuffer map(File cacheFile) throws IOException {
+        try(FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); //Stays mapped after the channel is closed
+        }
+    }
+
+    /**
+     * Check that a cache file is a complete cache of the pack as it is now.
+     * Only the header is read, the file is not mapped.
+     */
+    private static boolean isCurrent(File pack, File cacheFile) {
+        if(!cacheFile.exists()) return false;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION
+                    && in.readLong() == pack.length() && in.readLong() == pack.lastModified();
+        } catch(IOException e) {
+            return false; //Too short, or unreadable, so it is built again
+        }
+    }
+
+    /**
+     * Delete the caches of older versions of a pack. A cache still mapped by a pack opened before the
+     * change may not be deletable yet, it is tried again the next time the pack is opened.
+     * @param pack The pack
+     * @param current The cache of the pack as it is now, which is kept
+     */
+    private static void deleteOldCaches(File pack, File current) {
+        File directory = pack.getAbsoluteFile().getParentFile();
+        Pattern name = Pattern.compile(Pattern.quote(pack.getName()) + "(\\.[0-9a-f]+-[0-9]+)?\\.cache"); //Also the old unversioned name
+        File[] caches = directory == null ? null : directory.listFiles((dir, file) -> name.matcher(file).matches());
+        if(caches == null) return;
+        for(File cache : caches)
+            if(!cache.getName().equals(current.getName()))
+                cache.delete();
+    }
+
+    /**
+     * Parse every level of a pack and write the cache file.
+     * It is written to a temporary file and then renamed, so the cache is never seen half written.
+     * The cache file should be one nothing has mapped, see cacheFile.
+     * @param pack The pack to read
+     * @param cacheFile The cache file to write
+     * @throws IOException If the pack could not be read or the cache could not be written
+     */
+    public static void buildCache(File pack, File cacheFile) throws IOException {
+        ByteArrayOutputStream levelBytes = new ByteArrayOutputStream();
+        DataOutputStream levels = new DataOutputStream(levelBytes);
+        List<Integer> offsets = new ArrayList<>(); //Offset of each level from the start of the level data
+
+        try(BufferedReader in = new BufferedReader(new FileReader(pack))) {
+            List<String> lines = new ArrayList<>();
+            for(String line = in.readLine(); ; line = in.readLine()) {
+                if(line != null && isBoardLine(line)) {
+                    lines.add(line);
+                    continue;
+                }
+                if(!lines.isEmpty()) { //The line after a level ends it
+                    offsets.add(levels.size());
+                    writeLevel(levels, lines, offsets.size());
+                    lines.clear();
+                }
+                if(line == null) break;
+            }
+        }
+
+        int dataStart = HEADER_SIZE + offsets.size() * 8;
+        File temp = new File(cacheFile.getPath() + ".tmp"); //Written whole, then renamed over the old cache
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(pack.length());
+            out.writeLong(pack.lastModified());
+            out.writeInt(offsets.size());
+            for(int offset : offsets)
+                out.writeLong(dataStart + offset);
+            levelBytes.writeTo(out);
+        } catch(IOException e) {
+            temp.delete();
+            throw e;
+        }
+        try { //The rename never leaves a cut short cache
+            Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            temp.delete();
+            if(!isCurrent(pack, cacheFile)) throw e; //Built and mapped by another program at the same time is fine
+        }
+    }
+
+    /**
+     * Parse a level and write it in the cache layout
+     */
+    private static void writeLevel(DataOutputStream out, List<String> lines, int number) throws IOException {
+        Board board;
+        try {
+            board = Board.parse(lines);
+        } catch(RuntimeException e) {
+            throw new IOException("Level " + number + ": " + e.getMessage());
+        }
+        if(board.getWorkerStart() < 0) throw new IOException("Level " + number + " has no worker");
+
+        out.writeInt(board.getRows());
+        out.writeInt(board.getCols());
+        out.writeInt(board.getWorkerStart());
+        for(int i = 0; i < board.size(); i++)
+            out.writeByte(board.getFlags(i));
+    }
+
+    /**
+     * Is a line part of a board? Board lines have a wall and only board characters,
+     * in either the XSB or the warehouse file format.
+     */
+    private static boolean isBoardLine(String line) {
+        if(line.indexOf('#') < 0) return false;
+        for(int i = 0; i < line.length(); i++)
+            if("#@+$*. -_wsb".indexOf(line.charAt(i)) < 0) return false;
+        return true;
+    }
+}
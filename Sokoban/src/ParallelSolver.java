@@ -0,0 +1,327 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multi-threaded version of the Solver.
+ * The search goes one push at a time: every state reached with k pushes is expanded
+ * before any state reached with k + 1, so the first solution found uses the fewest pushes.
+ * Each layer is split into tasks on a work-stealing ForkJoinPool, and the threads
+ * deduplicate states through a shared ConcurrentStateTable.
+ */
+public class ParallelSolver {
+    private static final int BATCH = 64; //Number of states a task expands without splitting further
+
+    private final SolverLevel level;    //Static data of the level being solved
+    private final Board start;          //Board the search starts from
+    private final int startWorker;      //Board index of the worker at the start
+    private final int threads;          //Number of threads in the pool
+    private long nodeLimit = Solver.DEFAULT_NODE_LIMIT;
+    private long timeLimitNanos;        //Longest the search may run, 0 for no limit
+    private long memoryLimit;           //Most bytes the state table and layers may use, 0 for no limit
+    private volatile boolean cancelled; //Set by cancel, from any thread
+    private volatile int stopped;       //Limit a task stopped at, see Solver, or 0 while the search can go on
+    private long startTime;             //Value of System.nanoTime when the search started
+
+    private ConcurrentStateTable table;                  //Every state seen so far
+    private ThreadLocal<PushExpander> expanders;         //Scratch arrays for each thread
+    private final AtomicInteger found = new AtomicInteger(-1); //Id of a solved state, or -1
+    private final AtomicLong nodesExpanded = new AtomicLong(); //Number of states expanded so far
+
+    private int status = -1;            //Result of the last search
+    private int[] solution;             //Pushes of the solution found, see Solver.packPush
+    private long elapsedNanos;          //Running time of the last search
+    private long peakMemory;            //Most heap memory seen in use during the last search
+
+    /**
+     * Constructor
+     * @param board Board to solve, it is not changed
+     * @param worker Board index of the worker
+     * @param threads Number of threads to search with
+     */
+    public ParallelSolver(Board board, int worker, int threads) {
+        this(new SolverLevel(board), board, worker, threads);
+    }
+
+    /**
+     * Constructor for a level that has already been precomputed
+     * @param level Static data of the level
+     * @param board Board to solve, it is not changed
+     * @param worker Board index of the worker
+     * @param threads Number of threads to search with
+     */
+    public ParallelSolver(SolverLevel level, Board board, int worker, int threads) {
+        this.level = level;
+        this.start = new Board(board);
+        this.startWorker = worker;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Set the maximum number of states to expand before giving up
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Set the longest the search may run before giving up
+     * @param millis Time limit in milliseconds, 0 for no limit
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimitNanos = millis * 1000000;
+    }
+
+    /**
+     * Set the most memory the search's own states may use before giving up.
+     * Three quarters goes to the state table, the rest is left for the layers of state ids.
+     * @param bytes Memory limit in bytes, 0 for no limit
+     */
+    public void setMemoryLimit(long bytes) {
+        this.memoryLimit = bytes;
+    }
+
+    /**
+     * Stop the search soon, from any thread. It returns Solver.CANCELLED.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Run the search
+     * @return Solver.SOLVED, Solver.UNSOLVABLE, or Solver.LIMIT, TIMEOUT, OUT_OF_MEMORY or CANCELLED if it gave up
+     */
+    public int solve() {
+        startTime = System.nanoTime();
+        stopped = 0;
+        table = new ConcurrentStateTable(level.getBoxCount());
+        table.setMemoryLimit(memoryLimit / 4 * 3);
+        expanders = ThreadLocal.withInitial(() -> new PushExpander(level));
+        found.set(-1);
+        nodesExpanded.set(0);
+        peakMemory = usedMemory();
+        solution = null;
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            status = search(pool);
+        }
+        finally {
+            pool.shutdown();
+        }
+        elapsedNanos = System.nanoTime() - startTime;
+        peakMemory = Math.max(peakMemory, usedMemory());
+        table = null; //Let the states be collected, the solution has been kept
+        expanders = null;
+        return status;
+    }
+
+    /**
+     * Expand the search one layer of pushes at a time until a solution is found
+     */
+    private int search(ForkJoinPool pool) {
+        int[] startBoxes = Solver.boxesOf(start);
+        if(level.lowerBound(startBoxes) == SolverLevel.UNREACHABLE) return Solver.UNSOLVABLE;
+
+        PushExpander expander = expanders.get();
+        int worker = expander.normalize(startBoxes, startWorker);
+        int startId = table.addIfAbsent(startBoxes, worker, expander.hash(startBoxes, worker), -1, -1, 0);
+        if(level.isSolved(startBoxes)) {
+            solution = new int[0];
+            return Solver.SOLVED;
+        }
+
+        int[] frontier = { startId };
+        while(frontier.length > 0)
+        {
+            frontier = pool.invoke(new ExpandTask(frontier, 0, frontier.length));
+            peakMemory = Math.max(peakMemory, usedMemory());
+
+            if(found.get() >= 0) {
+                solution = buildSolution(found.get());
+                return Solver.SOLVED;
+            }
+            if(stopped != 0) return stopped;
+            if(nodesExpanded.get() >= nodeLimit) return Solver.LIMIT;
+            if(memoryLimit > 0 && table.memoryBytes() + 4L * frontier.length > memoryLimit) return Solver.OUT_OF_MEMORY;
+        }
+        return Solver.UNSOLVABLE;
+    }
+
+    /**
+     * Task that expands part of a layer, splitting itself while it is large
+     * so that idle threads can steal the halves.
+     */
+    private class ExpandTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] frontier;   //States in the layer
+        private final int from;         //First state for this task
+        private final int to;           //One past the last state for this task
+
+        ExpandTask(int[] frontier, int from, int to) {
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * @return Ids of the new states found by this task
+         */
+        @Override
+        protected int[] compute() {
+            if(to - from > BATCH) {
+                int middle = (from + to) >>> 1;
+                ExpandTask left = new ExpandTask(frontier, from, middle);
+                left.fork();
+                int[] right = new ExpandTask(frontier, middle, to).compute();
+                int[] leftResult = left.join();
+                int[] joined = Arrays.copyOf(leftResult, leftResult.length + right.length);
+                System.arraycopy(right, 0, joined, leftResult.length, right.length);
+                return joined;
+            }
+
+            PushExpander expander = expanders.get();
+            int[] boxes = new int[level.getBoxCount()];
+            IdList children = new IdList();
+            if(cancelled) stopped = Solver.CANCELLED; //Checked once a task, a task is only a few states
+            else if(timeLimitNanos > 0 && System.nanoTime() - startTime > timeLimitNanos) stopped = Solver.TIMEOUT;
+            for(int i = from; i < to; i++)
+            {
+                if(found.get() >= 0 || stopped != 0 || nodesExpanded.get() >= nodeLimit) break; //Stop early, another thread finished or gave up
+                final int id = frontier[i];
+                final int cost = table.getCost(id);
+                table.getBoxes(id, boxes);
+                nodesExpanded.incrementAndGet();
+
+                expander.expand(boxes, table.getWorker(id), (child, childWorker, childHash, push, bound) -> {
+                    int childId = table.addIfAbsent(child, childWorker, childHash, id, push, cost + 1);
+                    if(childId == ConcurrentStateTable.FULL) {
+                        stopped = Solver.OUT_OF_MEMORY;
+                        return;
+                    }
+                    if(childId < 0) return; //Already reached, by this layer or an earlier one
+                    if(bound == 0 && level.isSolved(child))
+                        found.compareAndSet(-1, childId);
+                    children.add(childId);
+                });
+            }
+            return children.toArray();
+        }
+    }
+
+    /**
+     * Growable list of ints
+     */
+    private static class IdList {
+        private int[] ids = new int[64];
+        private int size;
+
+        void add(int id) {
+            if(size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    /**
+     * Follow the parents back from the solved state to list the pushes in order
+     */
+    private int[] buildSolution(int id) {
+        int[] pushes = new int[table.getCost(id)];
+        for(int i = pushes.length - 1; i >= 0; i--, id = table.getParent(id))
+            pushes[i] = table.getPush(id);
+        return pushes;
+    }
+
+    /**
+     * @return Heap memory currently in use
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return Result of the last search, or -1 if it has not been run
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The pushes of the solution, see Solver.packPush, or null if there is none
+     */
+    public int[] getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return Directions of every move and push in the solution, or null if there is none
+     */
+    public List<String> getMoves() {
+        if(solution == null) return null;
+        return Solver.expandMoves(level, start, startWorker, solution);
+    }
+
+    /**
+     * @return Number of states expanded by the last search
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded.get();
+    }
+
+    /**
+     * @return Running time of the last search in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return A one line summary of the last search
+     */
+    public String getReport() {
+        String result = status == Solver.SOLVED ? "Solved in " + solution.length + " pushes"
+                : status == Solver.UNSOLVABLE ? "No solution"
+                : status == Solver.TIMEOUT ? "Gave up after " + timeLimitNanos / 1000000 + " ms"
+                : status == Solver.OUT_OF_MEMORY ? "Gave up at " + memoryLimit / (1024 * 1024) + " MB of states"
+                : status == Solver.CANCELLED ? "Cancelled" : "Gave up after " + nodeLimit + " nodes";
+        long nodes = nodesExpanded.get();
+        return String.format("%s on %d threads: %d nodes expanded in %d ms (%d nodes/s), peak memory %d MB",
+                result, threads, nodes, elapsedNanos / 1000000,
+                elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos, peakMemory / (1024 * 1024));
+    }
+
+    /**
+     * Run three searches of the same board one after another and report how they compare.
+     * The speedup is of the parallel search over the same breadth-first search on one thread.
+     * Breadth-first expands more states than A*, so the A* Solver's run is reported beside it.
+     * Stops early, without running the rest, if a search is cancelled.
+     * @param astar The A* Solver
+     * @param single The breadth-first search on one thread
+     * @param parallel The breadth-first search on several threads
+     * @return Summary of the runs and the speedup
+     */
+    public static String compare(Solver astar, ParallelSolver single, ParallelSolver parallel) {
+        if(astar.solve() == Solver.CANCELLED || single.solve() == Solver.CANCELLED || parallel.solve() == Solver.CANCELLED)
+            return "Cancelled";
+        double speedup = parallel.elapsedNanos == 0 ? 0 : (double) single.elapsedNanos / parallel.elapsedNanos;
+        return String.format("%s. Speedup on %d threads over breadth-first on 1 thread (%d nodes, %d ms): %.2fx. A* on 1 thread: %d nodes, %d ms",
+                parallel.getReport(), parallel.threads, single.getNodesExpanded(), single.elapsedNanos / 1000000, speedup,
+                astar.getNodesExpanded(), astar.getElapsedMillis());
+    }
+}
@@ -16,9 +16,17 @@
  *  the fields public.
  *  If  pos is a variable containing a Position, then pos.row and pos.col
     will be the values of the row and the col in the Position.
+ *
+ *  Positions are values: equal positions have equal hash codes, so they work as keys of
+ *  a HashMap or HashSet. Position.of shares one object for each cell of boards up to
+ *  CACHE_SIZE square, so walking the worker around does not create garbage.
+ *  Search code that should not make objects at all works with board indexes instead, see Board.index.
  */
 
 public class Position {
+    public static final int CACHE_SIZE = 128; //Positions with row and column below this are shared by of()
+
+    private static final Position[] cache = new Position[CACHE_SIZE * CACHE_SIZE]; //Shared positions, filled in as they are asked for
 
     /**
      * Fields containing a row and a column
@@ -34,15 +42,37 @@ public class Position {
         this.col = col;
     }
 
+    /**
+     * Get the position of a cell, shared with every other caller for cells of small boards.
+     * Two threads may race to make the same position, which only means one of them is not shared.
+     * @param row Row of the cell
+     * @param col Column of the cell
+     * @return The position
+     */
+    public static Position of(int row, int col) {
+        if(row < 0 || col < 0 || row >= CACHE_SIZE || col >= CACHE_SIZE) return new Position(row, col);
+        int slot = row * CACHE_SIZE + col;
+        Position position = cache[slot];
+        if(position == null) {
+            position = new Position(row, col);
+            cache[slot] = position;
+        }
+        return position;
+    }
+
     /**
      * Return the next position in the specified direction
      */
     public Position next(String direction) {
-        if (direction.equals("up"))    return new Position(row-1, col);
-        if (direction.equals("down"))  return new Position(row+1, col);
-        if (direction.equals("left"))  return new Position(row, col-1);
-        if (direction.equals("right")) return new Position(row, col+1);
-        return this;
+        Direction dir = Direction.of(direction);
+        return dir == null ? this : next(dir);
+    }
+
+    /**
+     * Return the next position in the specified direction
+     */
+    public Position next(Direction direction) {
+        return of(row + direction.dRow, col + direction.dCol);
     }
 
     /**
@@ -61,4 +91,10 @@ public class Position {
         Position position = (Position)object;
         return position.row == row && position.col == col;
     }
+
+    @Override
+    public int hashCode()
+    {
+        return (row << 16) ^ col; //Different for every cell of any board with fewer than 65536 columns
+    }
 }
@@ -0,0 +1,110 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of primitive long keys.
+ * Searches pack a priority into the high bits and an id into the low bits,
+ * e.g. (priority << 32) | id, so no objects are created per queued item.
+ */
+public class PriorityHeap {
+    private long[] keys = new long[256]; //Heap ordered keys, keys[0] is the smallest
+    private int size;                    //Number of keys in the heap
+
+    /**
+     * Pack a priority and an id into a single key
+     * @param priority Priority, smaller is polled first. Must not be negative.
+     * @param id Id stored in the low 32 bits
+     * @return Packed key
+     */
+    public static long pack(int priority, int id) {
+        return ((long) priority << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the priority from a packed key
+     */
+    public static int priority(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Get the id from a packed key
+     */
+    public static int id(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Add a key to the heap
+     */
+    public void add(long key) {
+        if(size == keys.length)
+            keys = Arrays.copyOf(keys, size * 2);
+
+        int i = size++;
+        while(i > 0) //Sift up
+        {
+            int parent = (i - 1) >>> 1;
+            if(keys[parent] <= key) break;
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        keys[i] = key;
+    }
+
+    /**
+     * Remove and return the smallest key
+     * @return The smallest key, the heap must not be empty
+     */
+    public long poll() {
+        long result = keys[0];
+        long last = keys[--size];
+
+        int i = 0;
+        int half = size >>> 1;
+        while(i < half) //Sift down
+        {
+            int child = 2 * i + 1;
+            if(child + 1 < size && keys[child + 1] < keys[child])
+                child++;
+            if(last <= keys[child]) break;
+            keys[i] = keys[child];
+            i = child;
+        }
+        keys[i] = last;
+        return result;
+    }
+
+    /**
+     * @return True if there are no keys in the heap
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Number of keys in the heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all keys from the heap
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return Approximate memory used by the heap in bytes
+     */
+    public long memoryBytes() {
+        return 8L * keys.length;
+    }
+}
@@ -0,0 +1,162 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.function.IntPredicate;
+
+/**
+ * Generates the states that can be reached from a solver state with one push.
+ * Holds the scratch arrays for flood filling the worker's reachable cells, so
+ * each search thread needs its own expander. The level it reads from is shared.
+ */
+public class PushExpander {
+
+    /**
+     * Receives each state generated by expand.
+     */
+    public interface ChildHandler {
+        /**
+         * @param boxes Sorted box indices of the new state, only valid during the call
+         * @param worker Normalized worker index of the new state
+         * @param hash Zobrist hash of the new state
+         * @param push Push that reached the new state, see Solver.packPush
+         * @param bound Lower bound on the pushes left to solve the new state
+         */
+        void child(int[] boxes, int worker, long hash, int push, int bound);
+    }
+
+    private final SolverLevel level;    //Static data of the level being searched
+    private final int boxCount;         //Number of boxes in every state
+    private final boolean[] occupied;   //Boxes of the state being expanded
+    private final int[] reach;          //Stamp of the last flood fill of an expanded state that reached each cell
+    private final int[] childReach;     //Stamp of the last flood fill of a child state that reached each cell
+    private final int[] queue;          //Queue used by flood fills
+    private final int[] child;          //Boxes of the state being generated
+    private final DeadlockDetector deadlocks; //Freeze deadlock checks, with scratch space for this expander
+    private final IntPredicate hasBox;  //Box lookup for freeze checks
+    private int stamp;                  //Stamp of the latest flood fill
+
+    /**
+     * Constructor
+     * @param level Static data of the level being searched
+     */
+    public PushExpander(SolverLevel level) {
+        this.level = level;
+        this.boxCount = level.getBoxCount();
+        occupied = new boolean[level.size()];
+        reach = new int[level.size()];
+        childReach = new int[level.size()];
+        queue = new int[level.size()];
+        child = new int[boxCount];
+        deadlocks = level.getDeadlocks().copy();
+        hasBox = (i) -> occupied[i];
+    }
+
+    /**
+     * Work out the normalized worker position for a state
+     * @param boxes Box indices
+     * @param worker Board index of the worker
+     * @return The smallest index the worker can reach without moving a box
+     */
+    public int normalize(int[] boxes, int worker) {
+        for(int box : boxes) occupied[box] = true;
+        int smallest = flood(worker, reach);
+        for(int box : boxes) occupied[box] = false;
+        return smallest;
+    }
+
+    /**
+     * Zobrist hash of a state
+     */
+    public long hash(int[] boxes, int worker) {
+        long hash = level.workerKey(worker);
+        for(int box : boxes)
+            hash ^= level.boxKey(box);
+        return hash;
+    }
+
+    /**
+     * Generate every state reachable with one push that does not move a box onto a dead square
+     * or freeze it off a shelf
+     * @param boxes Sorted box indices of the state to expand
+     * @param worker Board index of the worker, any cell in its reachable area
+     * @param handler Receives each new state
+     */
+    public void expand(int[] boxes, int worker, ChildHandler handler) {
+        for(int box : boxes) occupied[box] = true;
+        flood(worker, reach);
+        int parentStamp = stamp;
+        boolean pruneDead = boxCount == level.getShelves().length; //Spare boxes may be parked anywhere
+
+        for(int b = 0; b < boxCount; b++)
+        {
+            int box = boxes[b];
+            for(int dir = 0; dir < 4; dir++)
+            {
+                int target = level.neighbour(box, dir);                   //Where the box would go
+                int behind = level.neighbour(box, (dir + 2) % 4);         //Where the worker has to stand
+                if(target < 0 || behind < 0 || reach[behind] != parentStamp) continue;
+                if(level.isWall(target) || occupied[target]) continue;
+                if(pruneDead && level.distanceToShelf(target) == SolverLevel.UNREACHABLE) continue; //Box could never reach a shelf from there
+
+                moveBox(boxes, child, b, target);
+                int bound = level.lowerBound(child);
+                if(bound == SolverLevel.UNREACHABLE) continue;
+
+                occupied[box] = false;
+                occupied[target] = true;
+                boolean frozen = pruneDead && deadlocks.isFreezeDeadlock(target, hasBox);
+                int childWorker = frozen ? -1 : flood(box, childReach);
+                occupied[target] = false;
+                occupied[box] = true;
+                if(frozen) continue;
+
+                handler.child(child, childWorker, hash(child, childWorker), Solver.packPush(box, dir), bound);
+            }
+        }
+        for(int box : boxes) occupied[box] = false;
+    }
+
+    /**
+     * Copy a sorted box array, moving one box and keeping the copy sorted
+     * @param boxes Sorted box indices
+     * @param into Array to copy into
+     * @param moved Position in the array of the box being moved
+     * @param target New board index of the box
+     */
+    private static void moveBox(int[] boxes, int[] into, int moved, int target) {
+        System.arraycopy(boxes, 0, into, 0, boxes.length);
+        int i = moved;
+        while(i > 0 && into[i - 1] > target) { into[i] = into[i - 1]; i--; }
+        while(i < into.length - 1 && into[i + 1] < target) { into[i] = into[i + 1]; i++; }
+        into[i] = target;
+    }
+
+    /**
+     * Flood fill the cells the worker can reach without moving a box,
+     * marking them with a new stamp
+     * @param from Board index of the worker
+     * @param marks Array to stamp the reached cells in
+     * @return The smallest reachable index, used as the normalized worker position
+     */
+    private int flood(int from, int[] marks) {
+        int current = ++stamp;
+        int head = 0, tail = 0;
+        int smallest = from;
+        marks[from] = current;
+        queue[tail++] = from;
+        while(head < tail) {
+            int cell = queue[head++];
+            for(int dir = 0; dir < 4; dir++) {
+                int next = level.neighbour(cell, dir);
+                if(next < 0 || marks[next] == current || level.isWall(next) || occupied[next]) continue;
+                marks[next] = current;
+                queue[tail++] = next;
+                if(next < smallest) smallest = next;
+            }
+        }
+        return smallest;
+    }
+}
@@ -0,0 +1,352 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Plans how to push one box to a target cell, with the other boxes staying where they are.
+ * This is an A* search where a state is the box position and the side of the box the
+ * worker is standing on. From a state the worker can push the box away from its side,
+ * or walk around to another side of the box. Costs come from a RouteCost, and the
+ * estimate is the Manhattan distance of the box from the target times the push cost.
+ * The result is the list of worker positions, so it can be played by auto-move,
+ * with each step into the box being a push.
+ *
+ * Plans are made on the click's thread, so each one is kept short. A target the box could never be pushed to
+ * is rejected before the search. The walk round the box from each state stops once it has reached every side
+ * the worker can get to, which one depth-first search of the warehouse per plan works out for every box position.
+ */
+public class PushPlanner {
+    private final Board board;          //Board the pushes are planned on
+    private final int size;             //Number of cells on the board
+    private final int cols;             //Width of the board
+    private final int[] costs;          //Best cost found to each state, state = box * 4 + side the worker is on
+    private final int[] parents;        //State each state was reached from, -1 for a first state
+    private final int[] seen;           //Stamp of the search that last reached each state
+    private final boolean[] closed;     //Whether each state has been expanded by the current search
+    private final PriorityHeap open = new PriorityHeap(); //States waiting to be expanded
+    private int stamp;                  //Stamp of the current search
+
+    private final int[] walkDistance;   //Steps from the start of the last walk search, for cells it reached
+    private final int[] walkParents;    //Cell each cell was reached from in the last walk search
+    private final int[] walkSeen;       //Stamp of the walk search that last reached each cell
+    private final int[] queue;          //Queue for walk searches and the box reachability check
+    private int walkStamp;              //Stamp of the last walk search
+
+    private final int[] order;          //Depth-first order each free cell was found in, 0 if not found
+    private final int[] low;            //Lowest order reachable from each cell's subtree by one edge back
+    private final int[] last;           //Highest order in each cell's subtree
+    private final int[] treeParents;    //Cell each cell was found from, -1 for the first cell of a region
+    private final int[] treeRoots;      //First cell found of each cell's region
+    private final byte[] nextDirs;      //Next direction to look in from each cell on the depth-first stack
+    private int originalBox;            //Board index of the box being planned for, before any pushes
+
+    /**
+     * Constructor
+     * @param board Board to plan on, read at the time of each search
+     */
+    public PushPlanner(Board board) {
+        this.board = board;
+        this.size = board.size();
+        this.cols = board.getCols();
+        costs = new int[size * 4];
+        parents = new int[size * 4];
+        seen = new int[size * 4];
+        closed = new boolean[size * 4];
+        walkDistance = new int[size];
+        walkParents = new int[size];
+        walkSeen = new int[size];
+        queue = new int[size];
+        order = new int[size];
+        low = new int[size];
+        last = new int[size];
+        treeParents = new int[size];
+        treeRoots = new int[size];
+        nextDirs = new byte[size];
+    }
+
+    /**
+     * @return Board the pushes are planned on
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Plan the cheapest way to push a box to a target cell
+     * @param worker Board index of the worker
+     * @param box Board index of the box to push
+     * @param target Board index the box should end up on
+     * @param cost Cost model for walking steps and pushes
+     * @return Worker positions from the start to the end of the plan, or null if the box cannot be pushed there
+     */
+    public ArrayList<Position> plan(int worker, int box, int target, RouteCost cost) {
+        if(box == target || !board.hasBox(box) || !board.isFree(target)) return null;
+        originalBox = box;
+        if(!boxCanReach(box, target)) return null; //Cheap check, so a click the box can never reach doesn't search every state
+
+        findCuts();
+        stamp++;
+        open.clear();
+        int walkStep = cost.cost(0, 0, false);
+        int pushStep = cost.cost(0, 0, true);
+
+        walk(worker, box); //The worker can start on any side of the box it can walk to
+        for(int side = 0; side < 4; side++) {
+            int cell = neighbour(box, side);
+            if(cell >= 0 && walked(cell))
+                offer(box * 4 + side, walkDistance[cell] * walkStep, -1, target, pushStep);
+        }
+
+        while(!open.isEmpty())
+        {
+            int state = PriorityHeap.id(open.poll());
+            if(closed[state]) continue; //Stale entry, already expanded more cheaply
+            closed[state] = true;
+
+            int boxCell = state >> 2;
+            int side = state & 3;
+            if(boxCell == target) return buildRoute(state, worker);
+
+            int dir = (side + 2) % 4;                   //Push the box away from the worker
+            int pushed = neighbour(boxCell, dir);
+            if(pushed >= 0 && isFreeForBox(pushed))
+                offer(pushed * 4 + side, costs[state] + pushStep, state, target, pushStep);
+
+            walk(neighbour(boxCell, side), boxCell);    //Walk round to the other sides
+            for(int other = 0; other < 4; other++) {
+                int cell = neighbour(boxCell, other);
+                if(other != side && cell >= 0 && walked(cell))
+                    offer(boxCell * 4 + other, costs[state] + walkDistance[cell] * walkStep, state, target, pushStep);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record a way of reaching a state if it is cheaper than any found so far, and queue it
+     */
+    private void offer(int state, int cost, int parent, int target, int pushStep) {
+        if(seen[state] == stamp && (closed[state] || costs[state] <= cost)) return;
+        seen[state] = stamp;
+        closed[state] = false;
+        costs[state] = cost;
+        parents[state] = parent;
+
+        int box = state >> 2;
+        int estimate = (Math.abs(board.rowOf(box) - board.rowOf(target)) + Math.abs(board.colOf(box) - board.colOf(target))) * pushStep;
+        open.add(PriorityHeap.pack(cost + estimate, state));
+    }
+
+    /**
+     * Can the box move into a cell? Its own starting cell counts as free.
+     */
+    private boolean isFreeForBox(int cell) {
+        return cell == originalBox || board.isFree(cell);
+    }
+
+    /**
+     * Can the worker walk into a cell while the box being planned for is at a given cell?
+     */
+    private boolean isFreeForWorker(int cell, int box) {
+        return cell != box && (cell == originalBox || board.isFree(cell));
+    }
+
+    /**
+     * Breadth-first search for the worker's walking distances to the sides of the box, filling walkDistance and walkParents.
+     * Only the sides are ever read, so the search stops once every side the worker can get to has been reached.
+     * @param from Board index the worker starts from
+     * @param box Board index of the box being planned for
+     */
+    private void walk(int from, int box) {
+        walkStamp++;
+        int region = regionBeside(from, box);
+        int sides = 0; //Sides of the box in the worker's region not reached yet
+        for(int dir = 0; dir < 4; dir++) {
+            int side = neighbour(box, dir);
+            if(side >= 0 && side != from && isFreeForWorker(side, box) && regionBeside(side, box) == region) sides++;
+        }
+
+        int head = 0, tail = 0;
+        walkSeen[from] = walkStamp;
+        walkDistance[from] = 0;
+        walkParents[from] = from;
+        queue[tail++] = from;
+        while(head < tail && sides > 0) {
+            int cell = queue[head++];
+            for(int dir = 0; dir < 4; dir++) {
+                int next = neighbour(cell, dir);
+                if(next < 0 || walkSeen[next] == walkStamp || !isFreeForWorker(next, box)) continue;
+                walkSeen[next] = walkStamp;
+                walkDistance[next] = walkDistance[cell] + 1;
+                walkParents[next] = cell;
+                queue[tail++] = next;
+                if(isBeside(next, box)) sides--;
+            }
+        }
+    }
+
+    /**
+     * Depth-first search of the cells the worker could walk on with the box taken away, finding for
+     * each cell its order, the lowest order its subtree reaches back to and the highest order in its subtree.
+     * From these regionBeside tells which cells the box cuts off from each other, wherever it is,
+     * so the walk searches know which sides of the box they can stop at.
+     * The search keeps its own stack, a recursive one could run out on a large warehouse.
+     */
+    private void findCuts() {
+        Arrays.fill(order, 0);
+        int count = 0;
+        for(int root = 0; root < size; root++) {
+            if(order[root] != 0 || !isFreeForWorker(root, -1)) continue;
+            int top = 0;
+            queue[top++] = root;
+            treeParents[root] = -1;
+            treeRoots[root] = root;
+            order[root] = low[root] = ++count;
+            nextDirs[root] = 0;
+            while(top > 0) {
+                int cell = queue[top - 1];
+                if(nextDirs[cell] < 4) {
+                    int next = neighbour(cell, nextDirs[cell]++);
+                    if(next < 0 || !isFreeForWorker(next, -1)) continue;
+                    if(order[next] == 0) {
+                        treeParents[next] = cell;
+                        treeRoots[next] = root;
+                        order[next] = low[next] = ++count;
+                        nextDirs[next] = 0;
+                        queue[top++] = next;
+                    }
+                    else if(next != treeParents[cell])
+                        low[cell] = Math.min(low[cell], order[next]);
+                }
+                else {
+                    top--;
+                    last[cell] = count;
+                    if(treeParents[cell] >= 0)
+                        low[treeParents[cell]] = Math.min(low[treeParents[cell]], low[cell]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find which region a cell is in while the box is at a cell, so cells in the same region can reach each other
+     * @param cell Board index of a cell the worker could walk on
+     * @param box Board index of the box
+     * @return The box's child in the search tree heading the region the box cuts off, -1 for the rest of the box's
+     * region, or -2 if the cell is not in the box's region at all
+     */
+    private int regionBeside(int cell, int box) {
+        if(order[cell] == 0 || treeRoots[cell] != treeRoots[box]) return -2;
+        if(order[cell] < order[box] || order[cell] > last[box]) return -1; //Not below the box in the tree
+        for(int dir = 0; dir < 4; dir++) {
+            int child = neighbour(box, dir);
+            if(child >= 0 && order[child] != 0 && treeParents[child] == box && order[child] <= order[cell] && order[cell] <= last[child])
+                return low[child] >= order[box] ? child : -1; //Cut off unless the child's subtree reaches back above the box
+        }
+        return -1;
+    }
+
+    /**
+     * Was a cell reached by the last walk search?
+     */
+    private boolean walked(int cell) {
+        return walkSeen[cell] == walkStamp;
+    }
+
+    /**
+     * Is a cell next to the box?
+     */
+    private boolean isBeside(int cell, int box) {
+        int offset = cell - box;
+        return offset == cols || offset == -cols || (Math.abs(offset) == 1 && cell / cols == box / cols);
+    }
+
+    /**
+     * Check whether the box could reach the target if the worker could always get round to the side it needs.
+     * Every push needs a free cell for the box in front of it and a free cell for the worker behind it, and
+     * those cells don't depend on where the worker is, so this is one breadth-first search over the cells.
+     * @return False if no run of pushes can get the box to the target
+     */
+    private boolean boxCanReach(int box, int target) {
+        walkStamp++; //Shares the walk arrays, only walkSeen is used
+        int head = 0, tail = 0;
+        walkSeen[box] = walkStamp;
+        queue[tail++] = box;
+        while(head < tail) {
+            int cell = queue[head++];
+            if(cell == target) return true;
+            for(int dir = 0; dir < 4; dir++) {
+                int next = neighbour(cell, dir);
+                int behind = neighbour(cell, (dir + 2) % 4);
+                if(next < 0 || behind < 0 || walkSeen[next] == walkStamp || !isFreeForBox(next) || !isFreeForBox(behind)) continue;
+                walkSeen[next] = walkStamp;
+                queue[tail++] = next;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the adjacent cell in a direction. Called for every step of every walk search, so it works on
+     * the index rather than going through the row and column.
+     * @return Board index of the adjacent cell, or -1 if it is off the board. Cells outside the warehouse
+     * are returned, they are never free.
+     */
+    private int neighbour(int cell, int dir) {
+        switch(dir) {
+            case 0: return cell >= cols ? cell - cols : -1;                 //Up
+            case 1: return cell % cols != cols - 1 ? cell + 1 : -1;         //Right
+            case 2: return cell + cols < size ? cell + cols : -1;           //Down
+            default: return cell % cols != 0 ? cell - 1 : -1;               //Left
+        }
+    }
+
+    /**
+     * Follow the parent states back from the goal, then replay them forwards to list every worker position
+     */
+    private ArrayList<Position> buildRoute(int goal, int worker) {
+        ArrayList<Integer> states = new ArrayList<>();
+        for(int state = goal; state != -1; state = parents[state])
+            states.add(state);
+
+        ArrayList<Position> route = new ArrayList<>();
+        route.add(positionOf(worker));
+        int at = worker;
+        for(int i = states.size() - 1; i >= 0; i--) {
+            int state = states.get(i);
+            int box = state >> 2;
+            int side = neighbour(box, state & 3);
+            if(at != side) {                            //Walk to this side of the box
+                walk(at, box);
+                appendWalk(route, at, side);
+                at = side;
+            }
+            if(i > 0 && (states.get(i - 1) >> 2) != box) { //Next state has the box moved, so push it
+                route.add(positionOf(box));
+                at = box;
+            }
+        }
+        return route;
+    }
+
+    /**
+     * Add the walk found by the last walk search to a route, not including its first cell
+     */
+    private void appendWalk(ArrayList<Position> route, int from, int to) {
+        int start = route.size();
+        for(int cell = to; cell != from; cell = walkParents[cell])
+            route.add(start, positionOf(cell));
+    }
+
+    /**
+     * Get the position of a board index
+     */
+    private Position positionOf(int index) {
+        return Position.of(board.rowOf(index), board.colOf(index));
+    }
+}
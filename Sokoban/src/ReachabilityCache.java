@@ -0,0 +1,159 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Caches which cells the worker can reach, and the shortest route to each of them.
+ * One breadth-first search from the worker fills in the reachable region, the distance
+ * to every cell in it and the cell each one is reached from.
+ * Plain moves cannot change the region, so it stays valid until a box moves, and only
+ * the routes are worked out again, when one is next asked for from a new position.
+ * The cache listens to the game engine, so pushes, pulls, undo and redo all invalidate it.
+ */
+public class ReachabilityCache implements GameListener {
+    private final GameEngine engine;    //Engine of the game being played
+
+    private int[] distance;             //Steps from the origin to each cell, -1 if not reachable
+    private int[] parents;              //Cell each cell is reached from on the shortest route
+    private int[] queue;                //Queue for the search
+    private boolean regionValid;        //False once a box has moved since the last search
+    private int origin = -1;            //Worker position the routes were found from, -1 if none
+
+    /**
+     * Constructor, subscribes to the engine
+     * @param engine Engine of the game to track
+     */
+    public ReachabilityCache(GameEngine engine) {
+        this.engine = engine;
+        engine.addListener(this);
+        if(engine.getBoard() != null)
+            boardLoaded();
+    }
+
+    /**
+     * Check whether the worker can walk to a cell without pushing a box
+     * @param index Board index of the cell
+     * @return True if the cell is in the worker's region
+     */
+    public boolean isReachable(int index) {
+        ensureRegion();
+        return index >= 0 && index < distance.length && distance[index] >= 0;
+    }
+
+    /**
+     * Get the number of steps the worker needs to walk to a cell
+     * @param index Board index of the cell
+     * @return Number of steps, or -1 if the cell cannot be reached
+     */
+    public int distanceTo(int index) {
+        if(!isReachable(index)) return -1;
+        ensureRoutes();
+        return distance[index];
+    }
+
+    /**
+     * Get the shortest route from the worker to a cell
+     * @param index Board index of the cell
+     * @return Positions from the worker to the cell, or null if there is no route or the worker is already there
+     */
+    public ArrayList<Position> routeTo(int index) {
+        if(!isReachable(index)) return null;
+        ensureRoutes();
+        if(index == origin) return null;
+
+        Board board = engine.getBoard();
+        ArrayList<Position> route = new ArrayList<>();
+        for(int cell = index; cell != origin; cell = parents[cell])
+            route.add(Position.of(board.rowOf(cell), board.colOf(cell)));
+        route.add(Position.of(board.rowOf(origin), board.colOf(origin)));
+        Collections.reverse(route); //Route was built from the end backwards
+        return route;
+    }
+
+    /**
+     * Search again if a box has moved since the region was found
+     */
+    private void ensureRegion() {
+        if(!regionValid) search();
+    }
+
+    /**
+     * Search again if a box has moved or the worker has walked since the routes were found
+     */
+    private void ensureRoutes() {
+        if(!regionValid || origin != engine.getWorker()) search();
+    }
+
+    /**
+     * Breadth-first search from the worker through every free cell
+     */
+    private void search() {
+        Board board = engine.getBoard();
+        int rows = board.getRows();
+        int cols = board.getCols();
+        Arrays.fill(distance, -1);
+        origin = engine.getWorker();
+
+        int head = 0, tail = 0;
+        distance[origin] = 0;
+        parents[origin] = origin;
+        queue[tail++] = origin;
+        while(head < tail)
+        {
+            int index = queue[head++];
+            int row = index / cols;
+            int col = index % cols;
+            for(int i = 0; i < 4; i++) //Loop to process each of the 4 positions adjacent to the current cell
+            {
+                int nextRow = row + GameEngine.CROSS_OFFSETS[i][1];
+                int nextCol = col + GameEngine.CROSS_OFFSETS[i][0];
+                if(nextRow < 0 || nextRow >= rows || nextCol < 0 || nextCol >= cols)
+                    continue; //Skip positions outside the warehouse
+
+                int nextIndex = nextRow * cols + nextCol;
+                if(distance[nextIndex] == -1 && board.isFree(nextIndex))
+                {
+                    distance[nextIndex] = distance[index] + 1;
+                    parents[nextIndex] = index;
+                    queue[tail++] = nextIndex;
+                }
+            }
+        }
+        regionValid = true;
+    }
+
+    /**
+     * A new board was loaded, size the arrays for it
+     */
+    @Override
+    public void boardLoaded() {
+        int size = engine.getBoard().size();
+        distance = new int[size];
+        parents = new int[size];
+        queue = new int[size];
+        regionValid = false;
+        origin = -1;
+    }
+
+    /**
+     * A box moved, so the region may have changed
+     */
+    @Override
+    public void cellChanged(int index) {
+        regionValid = false;
+    }
+
+    /**
+     * The worker walked inside its region, the region is unchanged.
+     * The routes are found again from the new position when they are next needed.
+     */
+    @Override
+    public void workerMoved(int from, int to) {
+    }
+}
@@ -0,0 +1,191 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Checks solutions by replaying them through the game rules, without any UI.
+ * One verifier is made for a level and can check any number of solutions to it,
+ * each on a fresh copy of the level.
+ *
+ * Run from the command line as
+ *   java ReplayVerifier [-q] [-b] level.txt [solutions]
+ * where the solutions file, or standard input, has one LURD solution per line,
+ * or with -b solutions in the binary format one after another. Solutions are read
+ * and checked one at a time, so large batches take no more memory than small ones.
+ * -q only prints the failures and the summary.
+ */
+public class ReplayVerifier implements SolutionCodec.ActionSink {
+    private final Board level;          //The level as loaded, copied for each solution
+    private final GameEngine engine = new GameEngine(); //Engine with no listeners, so nothing is drawn
+    private boolean checkPushes;        //Whether steps recorded as pushes must push, and moves must not
+    private int moves;                  //Steps taken so far, moves and pushes
+    private int pushes;                 //Pushes taken so far
+    private String failure;             //Why the solution failed, or null
+
+    /**
+     * Constructor
+     * @param level The level the solutions are for
+     */
+    public ReplayVerifier(Board level) {
+        this.level = level;
+    }
+
+    /**
+     * Check a solution in LURD notation
+     * @param solution The solution, run-length encoded or not
+     * @return True if the solution solves the level
+     */
+    public boolean verifyLurd(CharSequence solution) {
+        reset(true);
+        try {
+            SolutionCodec.decodeLurd(solution, this);
+        } catch(RuntimeException e) {
+            failure = e.getMessage();
+        }
+        return finish();
+    }
+
+    /**
+     * Check the next solution of a stream in the binary format
+     * @param in The stream
+     * @return False if the stream had no more solutions, otherwise see isSolved for the result
+     * @throws IOException If the stream could not be read
+     */
+    public boolean verifyNextBinary(DataInputStream in) throws IOException {
+        reset(false);
+        if(SolutionCodec.readBinary(in, this) < 0) return false;
+        finish();
+        return true;
+    }
+
+    /**
+     * Start checking a new solution on a fresh copy of the level
+     */
+    private void reset(boolean checkPushes) {
+        this.checkPushes = checkPushes;
+        engine.load(new Board(level));
+        moves = 0;
+        pushes = 0;
+        failure = null;
+    }
+
+    /**
+     * Check that the level ended up solved
+     */
+    private boolean finish() {
+        if(failure == null && !engine.isSolved())
+            failure = "level is not solved at the end";
+        return failure == null;
+    }
+
+    /**
+     * Take the next step of the solution
+     * @param action The encoded action
+     * @return False once the solution has failed
+     */
+    @Override
+    public boolean accept(byte action) {
+        String direction = GameEngine.CROSS_OFFSET_NAMES[ActionRecord.direction(action)];
+        int result = engine.moveOrPush(direction);
+        if(result == GameEngine.NONE) {
+            failure = "step " + (moves + 1) + " (" + SolutionCodec.letter(action) + ") is blocked";
+            return false;
+        }
+        if(checkPushes && ActionRecord.isPush(action) != (result == GameEngine.PUSH)) {
+            failure = "step " + (moves + 1) + " (" + SolutionCodec.letter(action) + ") is recorded as a " + (ActionRecord.isPush(action) ? "push" : "move") + " but is not one";
+            return false;
+        }
+        moves++;
+        if(result == GameEngine.PUSH) pushes++;
+        return true;
+    }
+
+    /**
+     * @return True if the last solution checked solves the level
+     */
+    public boolean isSolved() {
+        return failure == null;
+    }
+
+    /**
+     * @return Why the last solution checked failed, or null if it solved the level
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return Number of steps taken by the last solution checked, up to where it failed
+     */
+    public int getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return Number of pushes taken by the last solution checked, up to where it failed
+     */
+    public int getPushes() {
+        return pushes;
+    }
+
+    /**
+     * Describe the result of the last solution checked
+     */
+    public String getReport() {
+        return (failure == null ? "solved" : "failed: " + failure) + ", " + moves + " moves, " + pushes + " pushes";
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean quiet = false, binary = false;
+        String levelFile = null, solutionFile = null;
+        for(String arg : args) {
+            if(arg.equals("-q")) quiet = true;
+            else if(arg.equals("-b")) binary = true;
+            else if(levelFile == null) levelFile = arg;
+            else solutionFile = arg;
+        }
+        if(levelFile == null) {
+            System.err.println("Usage: java ReplayVerifier [-q] [-b] level.txt [solutions]");
+            System.exit(2);
+        }
+
+        ReplayVerifier verifier = new ReplayVerifier(Board.load(new File(levelFile)));
+        InputStream input = solutionFile == null ? System.in : new FileInputStream(solutionFile);
+        int count = 0, solved = 0;
+        long start = System.nanoTime();
+        if(binary) {
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(input))) {
+                while(verifier.verifyNextBinary(in)) {
+                    count++;
+                    if(verifier.isSolved()) solved++;
+                    if(!quiet || !verifier.isSolved()) System.out.println(count + ": " + verifier.getReport());
+                }
+            }
+        }
+        else {
+            try(BufferedReader in = new BufferedReader(new InputStreamReader(input))) {
+                for(String line = in.readLine(); line != null; line = in.readLine()) {
+                    if(line.trim().isEmpty()) continue; //Skip blank lines between solutions
+                    count++;
+                    if(verifier.verifyLurd(line)) solved++;
+                    if(!quiet || !verifier.isSolved()) System.out.println(count + ": " + verifier.getReport());
+                }
+            }
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+        System.out.println(count + " solutions, " + solved + " solved, " + (count - solved) + " failed in " + millis + "ms ("
+                + (count * 1000L / millis) + " per second)");
+        System.exit(solved == count ? 0 : 1);
+    }
+}
@@ -0,0 +1,59 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+/**
+ * Cost model for planning the worker's routes.
+ * Gives the cost of each step from the direction of the step before it, so routes
+ * can be made to prefer going straight or avoid pushing boxes.
+ */
+public interface RouteCost {
+
+    /**
+     * Route cost that only counts steps, giving the shortest route
+     */
+    RouteCost SHORTEST = weighted(1, 0, 1);
+
+    /**
+     * Route cost that picks the route with the fewest turns among routes of about the same
+     * length, so auto-move travels in long straight segments
+     */
+    RouteCost STRAIGHT = weighted(8, 1, 8);
+
+    /**
+     * Get the cost of one step of a route
+     * @param previousDir Direction index of the step before, or the way the worker faces for the first step
+     * @param dir Direction index of this step
+     * @param push Whether this step pushes a box
+     * @return Cost of the step, at least minStepCost()
+     */
+    int cost(int previousDir, int dir, boolean push);
+
+    /**
+     * @return The smallest cost any step can have, used to keep the distance estimate of a search from overestimating
+     */
+    int minStepCost();
+
+    /**
+     * Build a cost model from fixed weights
+     * @param step Cost of every step
+     * @param turn Extra cost of a step in a different direction to the step before
+     * @param push Extra cost of a step that pushes a box
+     * @return The cost model
+     */
+    static RouteCost weighted(int step, int turn, int push) {
+        return new RouteCost() {
+            @Override
+            public int cost(int previousDir, int dir, boolean isPush) {
+                return step + (previousDir != dir ? turn : 0) + (isPush ? push : 0);
+            }
+
+            @Override
+            public int minStepCost() {
+                return step;
+            }
+        };
+    }
+}
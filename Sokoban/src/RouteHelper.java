@@ -12,10 +12,113 @@ import java.util.*;
  */
 public class RouteHelper {
     private Sokoban sokobanInstance; //Instance of the game to run actions against and get positions from.
-
-    RouteHelper(Sokoban sokobanInstance)
+    private GameEngine engine; //Engine of the game, for the worker position and direction
+    private ReachabilityCache reachability; //Cells the worker can reach and the shortest routes to them
+    private RoutePlanner planner; //Planner for routes under other cost models, made for each board
+    private RouteCost routeCost = RouteCost.STRAIGHT; //Cost model used to pick routes
+    private PushPlanner pushPlanner; //Planner for pushing a box to a cell, made for each board
+    private int chosenBox = -1; //Board index of the box clicked on to be pushed, -1 if none
+
+    RouteHelper(Sokoban sokobanInstance, GameEngine engine)
     {
         this.sokobanInstance = sokobanInstance;
+        this.engine = engine;
+        this.reachability = new ReachabilityCache(engine);
+    }
+
+    /**
+     * Set the cost model used to pick routes
+     * @param routeCost The cost model, RouteCost.SHORTEST uses the cached shortest routes
+     */
+    public void setRouteCost(RouteCost routeCost) {
+        this.routeCost = routeCost;
+    }
+
+    /**
+     * @return The cost model used to pick routes
+     */
+    public RouteCost getRouteCost() {
+        return routeCost;
+    }
+
+    /**
+     * Handle a click on the warehouse.
+     * Clicking a box chooses it, and the next click on a free cell pushes the chosen box there.
+     * Otherwise the worker walks to the clicked cell.
+     * @param x X position of the click
+     * @param y Y position of the click
+     * @return Success indicator. False indicates nothing could be done.
+     */
+    public boolean click(int x, int y)
+    {
+        int row = (y - Sokoban.TOP_MARGIN) / Sokoban.CELL_SIZE; //Calculate cell row
+        int col = (x - Sokoban.LEFT_MARGIN) / Sokoban.CELL_SIZE; //Calculate cell column
+        Board board = sokobanInstance.getBoard();
+
+        if(board.hasBox(row, col)) //Choose the box, or clicking it again cancels
+        {
+            int index = board.index(row, col);
+            boolean choose = !isChosen(index);
+            sokobanInstance.deselectAllCells();
+            chosenBox = choose ? index : -1;
+            if(choose) {
+                sokobanInstance.setSelected(Position.of(row, col), true);
+                UI.printMessage("Box chosen, click where to push it.");
+            }
+            return true;
+        }
+        if(isChosen(chosenBox))
+            return pushBox(chosenBox, row, col);
+        chosenBox = -1;
+        return moveWorker(x, y);
+    }
+
+    /**
+     * Check that a box is still chosen. Any other action clears the selection, which cancels the choice.
+     */
+    private boolean isChosen(int index)
+    {
+        Board board = sokobanInstance.getBoard();
+        return index >= 0 && index < board.size() && board.hasBox(index)
+                && sokobanInstance.isSelected(Position.of(board.rowOf(index), board.colOf(index)));
+    }
+
+    /**
+     * Attempts to plan pushes that move a box to a cell, then plays them with auto-move.
+     * @param box Board index of the box to push
+     * @param row Row of the cell to push it to
+     * @param col Column of the cell to push it to
+     * @return Success indicator. False indicates the box cannot be pushed there.
+     */
+    public boolean pushBox(int box, int row, int col)
+    {
+        Board board = sokobanInstance.getBoard();
+        chosenBox = -1;
+        sokobanInstance.deselectAllCells();
+        if(!board.isFree(row, col)) //Ensure a valid free cell was clicked
+        {
+            UI.printMessage("Invalid destination!");
+            return false;
+        }
+
+        if(pushPlanner == null || pushPlanner.getBoard() != board) //New level, the planner's arrays are sized for the old board
+            pushPlanner = new PushPlanner(board);
+        long start = System.nanoTime();
+        ArrayList<Position> route = pushPlanner.plan(engine.getWorker(), box, board.index(row, col), routeCost);
+        long millis = (System.nanoTime() - start) / 1000000;
+        if(route == null) { //If the box cannot get there
+            UI.printMessage("Box cannot be pushed there!");
+            return false;
+        }
+
+        UI.printMessage("Pushes found in " + millis + "ms!");
+        for(int i = 1; i < route.size(); i++) //Select all positions except first position in route.
+        {
+            sokobanInstance.setSelected(route.get(i), true); //Select cell and redraw it to show selection
+        }
+
+        sokobanInstance.beginAutoMove(route); //Moving into the box pushes it, and each step is recorded for undo
+        return true;
     }
 
     /**
@@ -29,16 +132,18 @@ public class RouteHelper {
         UI.printMessage("Finding route...");
         int row = (y - Sokoban.TOP_MARGIN) / Sokoban.CELL_SIZE; //Calculate cell row
         int col = (x - Sokoban.LEFT_MARGIN) / Sokoban.CELL_SIZE; //Calculate cell column
-        Position position = new Position(row, col);
-        Cell cell = sokobanInstance.getCell(position); //Get cell
+        Board board = sokobanInstance.getBoard();
 
-        if(cell == null || !cell.isFree()) //Ensure a valid cell was found
+        if(!board.isFree(row, col)) //Ensure a valid free cell was clicked
         {
             UI.printMessage("Invalid destination!");
             return false;
         }
 
-        ArrayList<Position> route = findRoute(sokobanInstance.getWorkerPos(), position); //Find shortest route if it exists
+        int index = board.index(row, col);
+        ArrayList<Position> route = null;
+        if(reachability.isReachable(index)) //Unreachable cells are rejected without searching
+            route = routeCost == RouteCost.SHORTEST ? reachability.routeTo(index) : planRoute(index);
         if(route == null) { //If no route
             UI.printMessage("No route to destination!");
             return false;
@@ -48,66 +153,25 @@ public class RouteHelper {
 
         for(int i = 1; i < route.size(); i++) //Select all positions except first position in route.
         {
-            Position pos = route.get(i); //Get cell
-            sokobanInstance.getCell(pos).selected = true; //Select cell
-            sokobanInstance.drawCell(pos); //Redraw cell to show selection
+            sokobanInstance.setSelected(route.get(i), true); //Select cell and redraw it to show selection
         }
 
-        sokobanInstance.beginAutoMove(); //Begin moving the worker along the route
+        sokobanInstance.beginAutoMove(route); //Begin moving the worker along the route
 
         return true;
     }
 
     /**
-     * Core route finding algorithm. This is an implementation of Dijkstra's algorithm.
-     * @param start The starting position of the route
-     * @param end The desired end position of the route
-     * @return Null if no route, or the set of positions that make up the shortest route.
+     * Plan the cheapest route to a cell under the current cost model
+     * @param index Board index of the destination
+     * @return Positions from the worker to the destination, or null if there is no route
      */
-    private ArrayList<Position> findRoute(Position start, Position end)
+    private ArrayList<Position> planRoute(int index)
     {
-        PriorityQueue<ArrayList<Position>> dijkstraRoutes = new PriorityQueue<>(Comparator.comparing(ArrayList::size)); //Map of routes. Key is route cost/distance, value is the path.
-
-        if(start.equals(end)) //Ensure that the start position doesn't equal the end position
-            return null;
-
-        ArrayList<Position> routeBegin = new ArrayList<>(); //Begin the first route with the starting position.
-        routeBegin.add(start); //Add start pos
-        dijkstraRoutes.add(routeBegin); //Add start route to route list
-
-        while (dijkstraRoutes.size() > 0) //Main loop to calculate optimal path
-        {
-            ArrayList<Position> route = dijkstraRoutes.poll(); //Get route with lowest distance/cost
-            if(route == null) //Ensure route exists and the route list is not empty
-                return null; //No route to target
-
-            Position lastMove = route.get(route.size() - 1); //Get the last move in the route
-
-            /*
-                Cross pattern that the following for loop iterates over:
-                0  #  0
-                #  0  #
-                0  #  0
-             */
-            for(int i = 0; i < 4; i++) //Loop to process each of the 4 positions adjacent to the last move
-            {
-                Position nextPosition = new Position(lastMove.row + Sokoban.CROSS_OFFSETS[i][1], lastMove.col + Sokoban.CROSS_OFFSETS[i][0]); //Calculate new position in the cross pattern
-
-                if(route.contains(nextPosition) || nextPosition.equals(start))
-                    continue; //Skip cells that are already in the route
-
-                Cell cell = sokobanInstance.getCell(nextPosition); //Get the cell at the position in the cross
-                if(cell != null && cell.isFree()) //Check if the cell is valid and free to be moved into
-                {
-                    ArrayList<Position> routeCopy = new ArrayList<>(route); //Clone route to avoid immutability issues
-                    routeCopy.add(nextPosition); //Add the new move
-                    dijkstraRoutes.add(routeCopy); //Add the route back to the queue
-                }
-            }
-
-            if(route.get(route.size() - 1).equals(end)) //If route has reached the end
-                return route;
-        }
-        return null; //Queue had no items so loop ended. No route to target.
+        Board board = sokobanInstance.getBoard();
+        if(planner == null || planner.getBoard() != board) //New level, the planner's arrays are sized for the old board
+            planner = new RoutePlanner(board);
+        int facing = GameEngine.directionIndex(engine.getWorkerDir());
+        return planner.plan(engine.getWorker(), facing, index, routeCost);
     }
 }
@@ -0,0 +1,120 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Plans the cheapest walking route for the worker under a RouteCost.
+ * This is an A* search where a state is a cell and the direction the worker arrived in,
+ * so the cost model can charge for turns. The distance estimate is the Manhattan
+ * distance times the cheapest step cost, which never overestimates, and the open list
+ * is a primitive PriorityHeap. The arrays are kept between searches of the same board.
+ */
+public class RoutePlanner {
+    private final Board board;          //Board the routes are planned on
+    private final int[] costs;          //Best cost found to each state, state = cell * 4 + direction
+    private final int[] parents;        //State each state was reached from
+    private final int[] seen;           //Stamp of the search that last reached each state
+    private final boolean[] closed;     //Whether each state has been expanded by the current search
+    private final PriorityHeap open = new PriorityHeap(); //States waiting to be expanded
+    private int stamp;                  //Stamp of the current search
+
+    /**
+     * Constructor
+     * @param board Board to plan routes on, read at the time of each search
+     */
+    public RoutePlanner(Board board) {
+        this.board = board;
+        int states = board.size() * 4;
+        costs = new int[states];
+        parents = new int[states];
+        seen = new int[states];
+        closed = new boolean[states];
+    }
+
+    /**
+     * @return Board the routes are planned on
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Plan the cheapest route through free cells
+     * @param start Board index of the worker
+     * @param startDir Direction index the worker is facing
+     * @param goal Board index of the destination
+     * @param cost Cost model for the route
+     * @return Positions from the start to the goal, or null if there is no route or start is the goal
+     */
+    public ArrayList<Position> plan(int start, int startDir, int goal, RouteCost cost) {
+        if(start == goal || !board.isFree(goal)) return null;
+
+        stamp++;
+        open.clear();
+        int cols = board.getCols();
+        int goalRow = board.rowOf(goal);
+        int goalCol = board.colOf(goal);
+        int minStep = cost.minStepCost();
+
+        int startState = start * 4 + startDir;
+        visit(startState, 0, startState);
+        open.add(PriorityHeap.pack(0, startState));
+
+        while(!open.isEmpty())
+        {
+            int state = PriorityHeap.id(open.poll());
+            if(closed[state]) continue; //Stale entry, already expanded more cheaply
+            closed[state] = true;
+
+            int cell = state >> 2;
+            if(cell == goal) return buildRoute(state, startState);
+
+            int row = cell / cols;
+            int col = cell % cols;
+            for(int dir = 0; dir < 4; dir++)
+            {
+                int nextRow = row + GameEngine.CROSS_OFFSETS[dir][1];
+                int nextCol = col + GameEngine.CROSS_OFFSETS[dir][0];
+                if(!board.isFree(nextRow, nextCol)) continue;
+
+                int next = (nextRow * cols + nextCol) * 4 + dir;
+                int nextCost = costs[state] + cost.cost(state & 3, dir, false);
+                if(seen[next] == stamp && (closed[next] || costs[next] <= nextCost)) continue;
+
+                visit(next, nextCost, state);
+                int estimate = (Math.abs(goalRow - nextRow) + Math.abs(goalCol - nextCol)) * minStep;
+                open.add(PriorityHeap.pack(nextCost + estimate, next));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record the best cost found so far for a state
+     */
+    private void visit(int state, int cost, int parent) {
+        if(seen[state] != stamp) {
+            seen[state] = stamp;
+            closed[state] = false;
+        }
+        costs[state] = cost;
+        parents[state] = parent;
+    }
+
+    /**
+     * Walk the parent states back from the goal to build the route
+     */
+    private ArrayList<Position> buildRoute(int state, int startState) {
+        ArrayList<Position> route = new ArrayList<>();
+        for(; state != startState; state = parents[state])
+            route.add(Position.of(board.rowOf(state >> 2), board.colOf(state >> 2)));
+        route.add(Position.of(board.rowOf(startState >> 2), board.colOf(startState >> 2)));
+        Collections.reverse(route); //Route was built from the end backwards
+        return route;
+    }
+}
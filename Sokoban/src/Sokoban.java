@@ -14,39 +14,51 @@ import java.awt.*;
 import java.util.*;
 import java.io.*;
 import java.util.List;
+import java.util.function.Supplier;
+import javax.swing.JButton;
 
 /** 
  * Sokoban
  */
 
-public class Sokoban {
+public class Sokoban implements GameListener {
 
-    public static final int[][] CROSS_OFFSETS = new int[][] { //Offsets for finding adjacent cells in a cross pattern.
-            {0, -1}, //Up
-            {1, 0}, //Right
-            {0, 1}, //Down
-            {-1, 0} //Left
-    };
-
-    public static final String[] CROSS_OFFSET_NAMES = new String[] { //Offset names for finding adjacent cells in a cross pattern.
-            "up", "right", "down", "left"
-    };
+    public static final int[][] CROSS_OFFSETS = GameEngine.CROSS_OFFSETS; //Offsets for finding adjacent cells in a cross pattern.
+    public static final String[] CROSS_OFFSET_NAMES = GameEngine.CROSS_OFFSET_NAMES; //Offset names for finding adjacent cells in a cross pattern.
 
     public static final int LEFT_MARGIN = 40;
     public static final int TOP_MARGIN = 50;
     public static final int CELL_SIZE = 25;
 
-    public static final int MAX_HISTORY_SIZE = 500; //Maximum length of undo and redo stacks for this game
+    public static final int AUTO_MOVE_MILLIS = 150; //Initial delay between auto-move steps
+    public static final int FLICKER_MILLIS = 100; //Delay between flickers when a level is won
+    public static final int SOLVE_MILLIS = 60000; //Longest the solve buttons search before giving up
+
+    public static final int MAX_HISTORY_SIZE = 1 << 22; //Maximum number of actions kept for undo and redo, one byte each
+    public static final int MAX_GENERATED_ROWS = 20; //Largest generated level that fits in the window
+    public static final int MAX_GENERATED_COLS = 32;
+
+    public static final String[] DEADLOCK_MODES = new String[] { //Names of the deadlock check modes, in the order the button cycles through them
+            "off", "warn", "block"
+    };
 
-    private Cell[][] cells;             // the array representing the warehouse
-    private int rows;                   // the height of the warehouse
-    private int cols;                   // the width of the warehouse
+    private GameEngine engine;          // the rules of the game, owns the board and the worker
+    private Board board;                // the board of the current level, as loaded into the engine
+    private WarehouseRenderer renderer; // draws the warehouse, redrawing only the cells that change
     private int level = 1;              // current level 
+    private LevelPack pack;             // level pack being played, or null to play the warehouse files
+    private int solverThreads = Runtime.getRuntime().availableProcessors(); // threads used by the parallel solver
+
+    private DeadlockDetector deadlocks; // dead squares of the current level
+    private int deadlockMode = 1;       // index into DEADLOCK_MODES
+    private JButton deadlockButton;     // button showing the deadlock mode
+    private JButton routeButton;        // button showing the route cost model
 
     private HistoryManager historyMan;  //History manager object for managing undo and redo actions
     private RouteHelper routeHelper;    //Helper object to find and execute routes between the worker and a point
-    private Position workerPos;         // the position of the worker
-    private String workerDir = "left";  // the direction the worker is facing
+    private final Object gameLock = new Object(); //Held by input handlers and auto-move steps while they change the game
+    private AutoMover autoMover;        //Plays auto-move routes and the win flicker on a timer
+    private volatile Runnable cancelSearch; //Cancels the solver running in the background, or null if none is
 
 
 
@@ -54,8 +66,16 @@ public class Sokoban {
      *  Constructor: set up the GUI, and load the 0th level.
      */
     public Sokoban() {
-        historyMan = new HistoryManager(this, MAX_HISTORY_SIZE); //Initialize new historyMan manager using the current game as the game instance.
-        routeHelper = new RouteHelper(this); //Initialize new route helper using the current game as the game instance.
+        engine = new GameEngine();
+        try {
+            renderer = new WarehouseRenderer(engine, LEFT_MARGIN, TOP_MARGIN, new TileAtlas(new File("."), CELL_SIZE)); //Read every tile once at startup
+        } catch(IOException e) {
+            throw new RuntimeException("Could not read the tile images: " + e.getMessage());
+        }
+        engine.addListener(this); //Redraw the warehouse when the engine changes it
+        historyMan = new HistoryManager(engine, MAX_HISTORY_SIZE); //Initialize new historyMan manager using the engine of the current game.
+        routeHelper = new RouteHelper(this, engine); //Initialize new route helper using the current game as the game instance.
+        autoMover = new AutoMover(gameLock, AUTO_MOVE_MILLIS);
         setupGUI();
         doLoad();
     }
@@ -64,14 +84,26 @@ public class Sokoban {
      * Add the buttons and set the key listener.
      */
     public void setupGUI(){
-        UI.addButton("New Level", () -> {level++; doLoad();});
-        UI.addButton("Restart",   this::doLoad);
-        UI.addButton("left",      () -> {moveOrPush("left");});
-        UI.addButton("up",        () -> {moveOrPush("up");});
-        UI.addButton("down",      () -> {moveOrPush("down");});
-        UI.addButton("right",     () -> {moveOrPush("right");});
-        UI.addButton("undo",      this::doUndoButton);
-        UI.addButton("redo",      this::doRedoButton);
+        UI.addButton("New Level", input(() -> {level++; doLoad();}));
+        UI.addButton("Restart",   input(this::doLoad));
+        UI.addButton("Load pack", input(this::doLoadPack));
+        UI.addTextField("Go to level", (text) -> {input(() -> doGoToLevel(text)).buttonPerformed();});
+        UI.addButton("left",      input(() -> {moveOrPush("left");}));
+        UI.addButton("up",        input(() -> {moveOrPush("up");}));
+        UI.addButton("down",      input(() -> {moveOrPush("down");}));
+        UI.addButton("right",     input(() -> {moveOrPush("right");}));
+        UI.addButton("undo",      input(this::doUndoButton));
+        UI.addButton("redo",      input(this::doRedoButton));
+        UI.addButton("Undo to push", input(this::doUndoToPushButton));
+        UI.addSlider("Timeline %", 0, 100, 100, this::doTimeline);
+        UI.addButton("Save replay", input(this::doSaveReplay));
+        UI.addButton("Load replay", input(this::doLoadReplay));
+        deadlockButton = UI.addButton("Deadlocks: " + DEADLOCK_MODES[deadlockMode], this::doDeadlockButton);
+        routeButton = UI.addButton("Route: straight", this::doRouteButton);
+        UI.addButton("Solve",     input(this::doSolve));
+        UI.addButton("Parallel solve", input(this::doParallelSolve));
+        UI.addSlider("Solver threads", 1, Math.max(2, solverThreads), solverThreads, (v) -> {solverThreads = (int)v;});
+        UI.addSlider("Auto-move delay (ms)", 10, 500, AUTO_MOVE_MILLIS, (v) -> {autoMover.setStepMillis((int)v);});
         UI.addButton("Quit",      UI::quit);
 
         UI.setKeyListener(this::doKey);
@@ -80,12 +112,53 @@ public class Sokoban {
     }
 
 
+    /**
+     * Wrap an input handler so it first cancels any auto-move, then runs holding the game lock
+     * @param action The handler
+     * @return Handler to give to the UI
+     */
+    private UIButtonListener input(Runnable action) {
+        return () -> {
+            autoMover.cancel();
+            synchronized(gameLock) {
+                action.run();
+                renderer.flush();
+            }
+        };
+    }
+
     /**
      * Get worker position for this game of Sokoban
      * @return Position of the worker
      */
     public Position getWorkerPos() {
-        return workerPos;
+        return engine.getWorkerPos();
+    }
+
+    /**
+     * Get the board for the current level
+     * @return Board holding the walls, shelves and boxes
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * Select or deselect a cell for auto-move, it is redrawn on the next flush
+     * @param position Position of the cell
+     * @param select New selection state
+     */
+    public void setSelected(Position position, boolean select) {
+        renderer.setSelected(board.index(position), select);
+    }
+
+    /**
+     * Check whether a cell is selected for auto-move
+     * @param position Position of the cell
+     * @return True if the cell is selected
+     */
+    public boolean isSelected(Position position) {
+        return renderer.isSelected(board.index(position));
     }
 
     /**
@@ -110,77 +183,286 @@ public class Sokoban {
             UI.printMessage("Nothing to redo!");
     }
 
+    /**
+     * Callback for undo to push button
+     */
+    private void doUndoToPushButton() {
+        clearSelection();
+        if(historyMan.undoToLastPush())
+            UI.printMessage("Undone to before the last push, at step " + historyMan.getUndoCount() + ".");
+        else
+            UI.printMessage("No push to undo!");
+    }
+
+    /**
+     * Callback for timeline slider.
+     * Jumps through the history, from the oldest stored step at 0% to the newest at 100%.
+     */
+    private void doTimeline(double percent) {
+        autoMover.cancel();
+        synchronized(gameLock) {
+            clearSelection();
+            int step = (int) Math.round(percent / 100 * historyMan.size());
+            historyMan.jumpTo(step);
+            renderer.flush();
+            UI.printMessage("Step " + step + " of " + historyMan.size());
+        }
+    }
+
+    /**
+     * Callback for save replay button.
+     * Writes the moves done since the level started to warehouse<level>.sol in LURD notation.
+     */
+    private void doSaveReplay() {
+        if(historyMan.getFirstStep() > 0) {
+            UI.printMessage("The start of this game is no longer in the history, so it can't be saved.");
+            return;
+        }
+        byte[] actions = historyMan.getDoneActions();
+        File f = new File(levelName() + ".sol");
+        try(PrintWriter out = new PrintWriter(f)) {
+            out.println(SolutionCodec.encodeLurd(actions, actions.length));
+            UI.printMessage("Saved " + actions.length + " moves to " + f.getName());
+        } catch(IOException e) {UI.println("File error: " + e);}
+    }
+
+    /**
+     * Callback for load replay button.
+     * Restarts the level and plays the moves in warehouse<level>.sol, so they can be undone and scrubbed through.
+     */
+    private void doLoadReplay() {
+        File f = new File(levelName() + ".sol");
+        String solution;
+        try(BufferedReader in = new BufferedReader(new FileReader(f))) {
+            solution = in.readLine();
+        } catch(IOException e) {UI.printMessage("No replay saved for " + levelName() + "."); return;}
+
+        doLoad();
+        engine.removeListener(this); //Play the moves without drawing each one, then draw the result once
+        try {
+            int played = SolutionCodec.decodeLurd(solution == null ? "" : solution, (action) -> {
+                String direction = CROSS_OFFSET_NAMES[ActionRecord.direction(action)];
+                int result = engine.moveOrPush(direction);
+                if(result == GameEngine.NONE) return false;
+                historyMan.storeAction(result == GameEngine.PUSH, ActionRecord.direction(action));
+                return true;
+            });
+            UI.printMessage("Replayed " + historyMan.getUndoCount() + " of " + played + " moves" + (isSolved() ? ", level solved." : "."));
+        } catch(RuntimeException e) {
+            UI.printMessage("Invalid replay: " + e.getMessage());
+        } finally {
+            engine.addListener(this);
+            drawWarehouse();
+        }
+    }
+
+    /**
+     * Callback for load pack button.
+     * Opens a level pack, in XSB or warehouse file format, and starts its first level.
+     */
+    private void doLoadPack() {
+        String path = UIFileChooser.open("Choose a level pack");
+        if(path == null) return;
+        try {
+            pack = new LevelPack(new File(path));
+        } catch(IOException e) {UI.printMessage("Could not load pack: " + e.getMessage()); return;}
+        UI.printMessage("Loaded " + pack.size() + " levels from " + pack.getName());
+        level = 1;
+        doLoad();
+    }
+
+    /**
+     * Callback for go to level text field
+     */
+    private void doGoToLevel(String text) {
+        int number;
+        try {
+            number = Integer.parseInt(text.trim());
+        } catch(NumberFormatException e) {UI.printMessage("Not a level number: " + text); return;}
+        boolean exists = number >= 1 && (pack == null || number <= pack.size()); //Levels past the warehouse files are generated
+        if(!exists) {
+            UI.printMessage("There is no level " + number + "!");
+            return;
+        }
+        level = number;
+        doLoad();
+    }
+
+    /**
+     * @return Name of the current level, used to name its replay file
+     */
+    private String levelName() {
+        return pack == null ? "warehouse" + level : pack.getName() + "-" + level;
+    }
+
+    /**
+     * Callback for deadlock button.
+     * Cycles between not checking pushes, warning about deadlocking pushes and blocking them.
+     */
+    private void doDeadlockButton() {
+        deadlockMode = (deadlockMode + 1) % DEADLOCK_MODES.length;
+        deadlockButton.setText("Deadlocks: " + DEADLOCK_MODES[deadlockMode]);
+    }
+
+    /**
+     * Callback for route button.
+     * Switches click-to-move between the shortest route and the route with the fewest turns.
+     */
+    private void doRouteButton() {
+        if (routeHelper.getRouteCost() == RouteCost.STRAIGHT) {
+            routeHelper.setRouteCost(RouteCost.SHORTEST);
+            routeButton.setText("Route: shortest");
+        }
+        else {
+            routeHelper.setRouteCost(RouteCost.STRAIGHT);
+            routeButton.setText("Route: straight");
+        }
+    }
+
+    /**
+     * Callback for solve button.
+     * Searches for the shortest push solution from the current state and reports how the search went.
+     */
+    private void doSolve() {
+        deselectAllCells();
+        Solver solver = new Solver(board, engine.getWorker()); //Copies the board, so the game can go on while it searches
+        solver.setTimeLimit(SOLVE_MILLIS);
+        solver.setMemoryLimit(Solver.memoryShare(1));
+        startSearch("Solving... press Solve again to cancel.", solver::cancel, () -> {
+            solver.solve();
+            return solver.getReport();
+        });
+    }
+
+    /**
+     * Run a solver on a background thread, so input is still handled while it searches.
+     * If one is already running, cancel it instead.
+     * @param message Message to show while it runs
+     * @param cancel Stops the search soon, from any thread
+     * @param search Runs the search and returns the message to show when it is done
+     */
+    private void startSearch(String message, Runnable cancel, Supplier<String> search) {
+        if(cancelSearch != null) {
+            cancelSearch.run();
+            UI.printMessage("Cancelling the search...");
+            return;
+        }
+        cancelSearch = cancel;
+        UI.printMessage(message);
+        Thread thread = new Thread(() -> {
+            String report;
+            try {
+                report = search.get();
+            } finally {
+                cancelSearch = null;
+            }
+            UI.printMessage(report);
+        }, "solver");
+        thread.setDaemon(true); //Don't keep the program running after the window closes
+        thread.start();
+    }
+
+    /**
+     * Callback for parallel solve button.
+     * Solves the current state with A*, then breadth-first with one thread and with the chosen number of threads,
+     * and reports the speedup, in the background.
+     */
+    private void doParallelSolve() {
+        deselectAllCells();
+        SolverLevel level = new SolverLevel(board);
+        Solver astar = new Solver(level, board, engine.getWorker());
+        astar.setTimeLimit(SOLVE_MILLIS);
+        astar.setMemoryLimit(Solver.memoryShare(1)); //The searches run one after another, so each can have it all
+        ParallelSolver single = new ParallelSolver(level, board, engine.getWorker(), 1);
+        ParallelSolver parallel = new ParallelSolver(level, board, engine.getWorker(), solverThreads);
+        for(ParallelSolver solver : new ParallelSolver[] {single, parallel}) {
+            solver.setTimeLimit(SOLVE_MILLIS);
+            solver.setMemoryLimit(Solver.memoryShare(1));
+        }
+        startSearch("Solving with A*, then on 1 and " + solverThreads + " threads... press Parallel solve again to cancel.",
+                () -> {astar.cancel(); single.cancel(); parallel.cancel();},
+                () -> ParallelSolver.compare(astar, single, parallel));
+    }
+
     /**
      * Callback for mouse action
      */
     private void doMouse(String action, double x, double y)
     {
         if(action.equals("pressed")) {
-            routeHelper.moveWorker((int) x, (int) y); //Find route and move worker along it
+            autoMover.cancel(); //A click cancels any auto-move
+            synchronized(gameLock) {
+                routeHelper.click((int) x, (int) y); //Choose a box, push the chosen box, or move the worker
+                renderer.flush();
+            }
         }
     }
 
     /**
-     * Moves the player automatically to any selected cell.
-     * Cells are selected by the route helper.
+     * Moves the player automatically along a route of selected cells.
+     * The steps are played by the auto-mover, so this returns straight away and input stays responsive.
+     * Stops early if the selection is cleared or new input cancels the auto-move.
+     * @param route Positions from the worker to the destination, selected by the route helper
      */
-    public void beginAutoMove()
+    public void beginAutoMove(List<Position> route)
     {
-        while(true) //Keep moving player until there are no adjacent selected cells
-        {
-            boolean availableMove = false; //State to indicate if any cells are available
-            for(int i = 0; i < 4; i++) //Loop to process each of the 4 positions adjacent to the last move
-            {
-                Position nextPosition = new Position(workerPos.row + Sokoban.CROSS_OFFSETS[i][1], workerPos.col + Sokoban.CROSS_OFFSETS[i][0]); //Calculate new position in the cross pattern
-                Cell cell = getCell(nextPosition); //Get cell
-
-                if(cell != null && cell.selected) //Ensure a valid cell was found
-                {
-                    availableMove = true; //A cell was available
-                    cell.selected = false; //Deselect cell
-                    drawCell(nextPosition); //Redraw the cell to display deselection
-                    moveOrPush(CROSS_OFFSET_NAMES[i]); //Move
-                    UI.sleep(150); //Wait 150ms
-                }
-            }
-            if(!availableMove) //If no more moves, exit
-                break;
-        }
+        Iterator<Position> steps = route.subList(1, route.size()).iterator(); //First position is where the worker starts
+        autoMover.play(() -> {
+            if(!steps.hasNext()) return false;
+            Position nextPosition = steps.next();
+            if(!isSelected(nextPosition)) //Selection was cleared, so stop moving
+                return false;
+
+            Position worker = engine.getWorkerPos();
+            Direction direction = Direction.between(worker.row, worker.col, nextPosition.row, nextPosition.col);
+            if(direction == null) //Worker is no longer next to the route
+                return false;
+
+            setSelected(nextPosition, false); //Deselect cell
+            moveOrPush(direction.label); //Move
+            renderer.flush(); //Draw the cells the step changed
+            return steps.hasNext();
+        });
+    }
+
+    /**
+     * Deselect the selected cells, they are redrawn on the next flush
+     */
+    private void clearSelection()
+    {
+        renderer.clearSelection();
     }
 
     /**
-     * Deselect all cells to cancel auto-move
+     * Deselect all cells to cancel auto-move, and show the boxes if the win flicker was stopped part way
      */
     public void deselectAllCells()
     {
-        for(int i = 0; i < cells.length; i++) //Iterate over rows
-        {
-            for(int j = 0; j < cells[i].length; j++) //Iterate over cols
-            {
-                cells[i][j].selected = false; //Deselect
-                drawCell(i, j); //Redraw cell
-            }
-        }
-        drawWorker(); //Redraw the worker
+        renderer.clearSelection();
+        renderer.setBoxesHidden(false);
     }
 
     /** 
      * Respond to key actions
      */
     public void doKey(String key) {
-        deselectAllCells();
-        key = key.toLowerCase();
-        if (key.equals("i")|| key.equals("w") ||key.equals("up")) {
-            moveOrPush("up");
-        }
-        else if (key.equals("k")|| key.equals("s") ||key.equals("down")) {
-            moveOrPush("down");
-        }
-        else if (key.equals("j")|| key.equals("a") ||key.equals("left")) {
-            moveOrPush("left");
-        }
-        else if (key.equals("l")|| key.equals("d") ||key.equals("right")) {
-            moveOrPush("right");
+        autoMover.cancel(); //A key press cancels any auto-move
+        synchronized(gameLock) {
+            deselectAllCells();
+            key = key.toLowerCase();
+            if (key.equals("i")|| key.equals("w") ||key.equals("up")) {
+                moveOrPush("up");
+            }
+            else if (key.equals("k")|| key.equals("s") ||key.equals("down")) {
+                moveOrPush("down");
+            }
+            else if (key.equals("j")|| key.equals("a") ||key.equals("left")) {
+                moveOrPush("left");
+            }
+            else if (key.equals("l")|| key.equals("d") ||key.equals("right")) {
+                moveOrPush("right");
+            }
+            renderer.flush();
         }
     }
 
@@ -190,8 +472,7 @@ public class Sokoban {
      */
     public void setWorkerDir(String direction)
     {
-        if(direction.equals("left") || direction.equals("right") || direction.equals("up") || direction.equals("down")) //Ensure direction is valid
-            workerDir = direction;
+        engine.setWorkerDir(direction);
     }
 
     /** 
@@ -201,35 +482,42 @@ public class Sokoban {
      *  Otherwise, if the worker can't move, do nothing.
      */
     public void moveOrPush(String direction) {
-        workerDir = direction;                  // turn worker to face in this direction
-        Position nextP = workerPos.next(direction);  // where the worker would move to
-        Position nextNextP = nextP.next(direction);  // where a box would be pushed to
-
-        // is there a box in that direction which can be pushed?
-        if ( cells[nextP.row][nextP.col].hasBox() &&
-             cells[nextNextP.row][nextNextP.col].isFree() ) {
-            push(direction);
+        if (deadlockMode > 0 && isDeadlockingPush(direction)) {
+            if (deadlockMode == 2) {
+                UI.printMessage("Blocked: that push would make the level impossible to solve.");
+                return;
+            }
+            UI.printMessage("Warning: that push makes the level impossible to solve. Undo to take it back.");
+        }
+        int result = engine.moveOrPush(direction);
 
+        if (result == GameEngine.PUSH) {
             if (isSolved()) { reportWin(); }
-            historyMan.storeAction(new ActionRecord("push", direction)); //Store push action in undo history
+            historyMan.storeAction(true, GameEngine.directionIndex(direction)); //Store push action in undo history
         }
-        // is the next cell free for the worker to move into?
-        else if ( cells[nextP.row][nextP.col].isFree() ) { 
-            move(direction);
-            historyMan.storeAction(new ActionRecord("move", direction)); //Store move action in undo history
+        else if (result == GameEngine.MOVE) {
+            historyMan.storeAction(false, GameEngine.directionIndex(direction)); //Store move action in undo history
         }
     }
 
+    /**
+     * Check whether moving in a direction would push a box into a deadlock
+     * @param direction The direction the worker would move
+     * @return True if a box would be pushed onto a dead square or frozen off a shelf
+     */
+    private boolean isDeadlockingPush(String direction) {
+        int box = engine.pushedBox(direction);
+        if (box < 0) return false;
+        int target = engine.neighbour(box, GameEngine.directionIndex(direction));
+        return deadlocks.isDeadlockingPush(board, box, target);
+    }
+
     /**
      * Moves the worker into the new position (guaranteed to be empty) 
      * @param direction the direction the worker is heading
      */
     public void move(String direction) {
-        drawCell(workerPos);                   // redisplay cell under worker
-        workerPos = workerPos.next(direction); // put worker in new position
-        drawWorker();                          // display worker at new position
-
-        Trace.println("Move " + direction);    // for debugging
+        engine.move(direction);
     }
 
     
@@ -238,20 +526,7 @@ public class Sokoban {
      *  @param direction the direction the worker is heading
      */
     public void push(String direction) {
-        Position boxPos = workerPos.next(direction);   // where box is
-        Position newBoxPos = boxPos.next(direction);   // where box will go
-
-        cells[boxPos.row][boxPos.col].removeBox();     // remove box from current cell
-        cells[newBoxPos.row][newBoxPos.col].addBox();  // place box in its new position
-
-        drawCell(workerPos);                           // redisplay cell under worker
-        drawCell(boxPos);                              // redisplay cell without the box
-        drawCell(newBoxPos);                           // redisplay cell with the box
-     
-        workerPos = boxPos;                            // put worker in new position
-        drawWorker();                                  // display worker at new position
-
-        Trace.println("Push " + direction);   // for debugging
+        engine.push(direction);
     }
 
 
@@ -261,69 +536,47 @@ public class Sokoban {
      *  pull the box into the Worker's old position
      */
     public void pull(String direction) {
-        Position boxPos = workerPos.next(opposite(direction));   // where box is
-        Position newBoxPos = boxPos.next(direction);   // where box will go
-
-        cells[boxPos.row][boxPos.col].removeBox();     // remove box from current cell
-        cells[newBoxPos.row][newBoxPos.col].addBox();  // place box in its new position
-
-        drawCell(workerPos);                           // redisplay cell under worker
-        drawCell(boxPos);                              // redisplay cell without the box
-        drawCell(newBoxPos);                           // redisplay cell with the box
-
-        workerPos = workerPos.next(direction);                            // put worker in new position
-        drawWorker();                                  // display worker at new position
+        engine.pull(direction);
+    }
 
-        Trace.println("Pull " + direction);   // for debugging
+    /**
+     * Called by the engine when a new board has been loaded
+     */
+    @Override
+    public void boardLoaded() {
+        board = engine.getBoard();
+        renderer.boardLoaded();
+        drawWarehouse();
     }
 
     /**
-     * Get cell at specified at position in the table
-     * @param row Row of the cell to select
-     * @param column Column in the row to select
-     * @return Null or the requested cell
+     * Called by the engine when a box has moved into or out of a cell
      */
-    public Cell getCell(int row, int column) {
-        try {
-            return cells[row][column];
-        }
-        catch (IndexOutOfBoundsException ex) //If cell index is invalid
-        {
-            return null;
-        }
+    @Override
+    public void cellChanged(int index) {
+        renderer.markDirty(index);
     }
 
     /**
-     * Overload for getCell, uses position object instead of co-ordinates
-     * @param position Position of cell to get
-     * @return Cell or null
+     * Called by the engine when the worker has moved
      */
-    public Cell getCell(Position position) {
-        return getCell(position.row, position.col);
+    @Override
+    public void workerMoved(int from, int to) {
+        renderer.markDirty(from);                       // redisplay cell the worker left
+        renderer.markDirty(to);                         // display worker at new position
     }
 
     /**
-     * Report a win by flickering the cells with boxes
+     * Report a win by flickering the cells with boxes.
+     * The flicker is played by the auto-mover, and only the drawing flickers, the board is not changed.
      */
     public void reportWin(){
-        for (int i=0; i<12; i++) {
-            for (int row=0; row<cells.length; row++)
-                for (int column=0; column<cells[row].length; column++) {
-                    Cell cell=cells[row][column];
-
-                    // toggle shelf cells
-                    if (cell.hasBox()) {
-                        cell.removeBox();
-                        drawCell(row, column);
-                    }
-                    else if (cell.isEmptyShelf()) {
-                        cell.addBox();
-                        drawCell(row, column);
-                    }
-                }
-
-            UI.sleep(100);
-        }
+        int[] flicker = new int[1]; //Number of flickers drawn so far
+        autoMover.play(() -> {
+            renderer.setBoxesHidden(flicker[0] % 2 == 0); //Boxes are hidden on every other flicker
+            renderer.flush();
+            return ++flicker[0] < 12;
+        }, FLICKER_MILLIS);
     }
     
     /** 
@@ -331,13 +584,7 @@ public class Sokoban {
      *  i.e., all the shelves have boxes on them 
      */
     public boolean isSolved() {
-        for(int row = 0; row<cells.length; row++) {
-            for(int col = 0; col<cells[row].length; col++)
-                if(cells[row][col].isEmptyShelf())
-                    return  false;
-        }
-
-        return true;
+        return board.isSolved();
     }
 
     /** 
@@ -345,11 +592,7 @@ public class Sokoban {
      * useful for undoing!
      */
     public String opposite(String direction) {
-        if ( direction.equals("right")) return "left";
-        if ( direction.equals("left"))  return "right";
-        if ( direction.equals("up"))    return "down";
-        if ( direction.equals("down"))  return "up";
-        throw new RuntimeException("Invalid  direction");
+        return GameEngine.opposite(direction);
     }
 
 
@@ -365,12 +608,8 @@ public class Sokoban {
      */
     public void drawWarehouse() {
         UI.clearGraphics();
-        // draw cells
-        for(int row = 0; row<cells.length; row++)
-            for(int col = 0; col<cells[row].length; col++)
-                drawCell(row, col);
-
-        drawWorker();
+        renderer.markAllDirty();
+        renderer.flush();
 
         UI.setColor(Color.black);
         UI.drawString("Click any valid cell to auto-move.", 30,30);
@@ -387,71 +626,55 @@ public class Sokoban {
      * Draw the cell at a given row,col
      */
     public void drawCell(int row, int col) {
-        double left = LEFT_MARGIN+(CELL_SIZE* col);
-        double top = TOP_MARGIN+(CELL_SIZE* row);
-        cells[row][col].draw(left, top, CELL_SIZE);
-    }
-
-    /**
-     * Draw the worker at its current position.
-     */
-    private void drawWorker() {
-        double left = LEFT_MARGIN+(CELL_SIZE* workerPos.col);
-        double top = TOP_MARGIN+(CELL_SIZE* workerPos.row);
-        UI.drawImage("worker-"+workerDir+".gif",
-                     left, top, CELL_SIZE,CELL_SIZE);
+        renderer.markDirty(board.index(row, col));
+        renderer.flush();
     }
 
 
 
     /**
-     * Load a grid of cells (and Worker position) for the current level from a file
+     * Load a grid of cells (and Worker position) for the current level,
+     * from its warehouse file or from the level pack's cache
      */
     public void doLoad() {
+        if(cancelSearch != null) cancelSearch.run(); //Its report would be about the old level
         historyMan.clearHistory();
         File f = new File("warehouse" + level + ".txt");
 
-        if (! f.exists()) {
+        if (level < 1) {
+            UI.printMessage("Levels start at 1!");
+            level = 1;
+        }
+        else if (pack != null && level > pack.size()) {
             UI.printMessage("Run out of levels!");
             level--;
         }
+        else if (pack == null && !f.exists()) { //Past the warehouse files, make a level, the same one each time for each level number
+            int past = Math.min(level - lastWarehouseFile(), MAX_GENERATED_COLS); //Levels stop growing well before this, and it can't overflow
+            int rows = Math.min(MAX_GENERATED_ROWS, 10 + past);
+            int cols = Math.min(MAX_GENERATED_COLS, 12 + 2 * past);
+            engine.load(new LevelGenerator(level).generate(rows, cols, Math.min(12, 2 + past / 2)));
+            deadlocks = new DeadlockDetector(board);
+            UI.printMessage("Level "+level+" (generated): Push the boxes to their target positions.");
+        }
         else {
-            List<String> lines = new ArrayList<String>();
             try {
-                Scanner sc = new Scanner(f);
-                while (sc.hasNext()){
-                    lines.add(sc.nextLine());
-                }
-                sc.close();
-            } catch(IOException e) {UI.println("File error: " + e);}
-
-            int rows = lines.size();
-            cells = new Cell[rows][];
-
-            for(int row = 0; row < rows; row++) {
-                String line = lines.get(row);
-                int cols = line.length();
-                cells[row]= new Cell[cols];
-                for(int col = 0; col < cols; col++) {
-                    char ch = line.charAt(col);
-                    if (ch=='w'){
-                        cells[row][col] = new Cell("empty");
-                        workerPos = new Position(row,col);
-                    }
-                    else if (ch=='.') cells[row][col] = new Cell("empty");
-                    else if (ch=='#') cells[row][col] = new Cell("wall");
-                    else if (ch=='s') cells[row][col] = new Cell("shelf");
-                    else if (ch=='b') cells[row][col] = new Cell("box");
-                    else {
-                        throw new RuntimeException("Invalid char at "+row+","+col+"="+ch);
-                    }
-                }
-            }
-            drawWarehouse();
+                engine.load(pack == null ? Board.load(f) : pack.getLevel(level)); // the engine tells us to draw the new warehouse
+            } catch(IOException e) {UI.println("File error: " + e); return;}
+            deadlocks = new DeadlockDetector(board);
             UI.printMessage("Level "+level+": Push the boxes to their target positions. Use buttons or put mouse over warehouse and use keys (arrows, wasd, ijkl, u)");
         }
     }
 
+    /**
+     * @return Number of the last warehouse file, counting up from warehouse1.txt until one is missing
+     */
+    private static int lastWarehouseFile() {
+        int last = 0;
+        while(new File("warehouse" + (last + 1) + ".txt").exists()) last++;
+        return last;
+    }
+
     public static void main(String[] args) {
         new Sokoban();
     }
@@ -0,0 +1,146 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Reads and writes solutions, as lists of encoded actions (see ActionRecord.encode).
+ *
+ * The text format is the usual LURD notation: one letter per step, lower case for a move
+ * and upper case for a push, where a number before a letter repeats it, e.g. "3rU" is
+ * right, right, right, push up. Whitespace is ignored.
+ *
+ * The binary format is a step count as an int followed by the directions packed four to a byte,
+ * lowest bits first. It does not store which steps are pushes, replaying the steps on the level
+ * tells them apart.
+ */
+public class SolutionCodec {
+    private static final char[] LURD = { 'u', 'r', 'd', 'l' }; //Letters of the directions, in direction index order
+    private static final int MAX_REPEAT = 1 << 16; //Longest run of one step, far longer than any row or column a run is made along
+
+    /**
+     * Receives the actions of a solution as it is decoded
+     */
+    public interface ActionSink {
+        /**
+         * @param action The next encoded action
+         * @return False to stop decoding
+         */
+        boolean accept(byte action);
+    }
+
+    /**
+     * Write actions in run-length encoded LURD notation
+     * @param actions Encoded actions
+     * @param length Number of actions to write from the start of the array
+     * @return The LURD string
+     */
+    public static String encodeLurd(byte[] actions, int length) {
+        StringBuilder out = new StringBuilder();
+        for(int i = 0; i < length;) {
+            int run = 1;
+            while(i + run < length && actions[i + run] == actions[i]) run++; //Count repeats of this action
+            if(run > 1) out.append(run);
+            out.append(letter(actions[i]));
+            i += run;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Get the LURD letter of an action
+     */
+    public static char letter(byte action) {
+        char ch = LURD[ActionRecord.direction(action)];
+        return ActionRecord.isPush(action) ? Character.toUpperCase(ch) : ch;
+    }
+
+    /**
+     * Decode a LURD string, run-length encoded or not.
+     * A repeat count over MAX_REPEAT is rejected, as no run of steps in one direction can be that long.
+     * @param text The LURD string
+     * @param sink Receives each action in order
+     * @return Number of actions decoded
+     */
+    public static int decodeLurd(CharSequence text, ActionSink sink) {
+        int count = 0;
+        int repeat = 0; //Repeat count read so far for the next letter, 0 if none
+        for(int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if(ch >= '0' && ch <= '9') {
+                repeat = repeat * 10 + (ch - '0');
+                if(repeat > MAX_REPEAT) throw new RuntimeException("Repeat count too big in solution at " + i); //Checked every digit, so it can't overflow
+                continue;
+            }
+            if(Character.isWhitespace(ch)) continue;
+
+            int dir = directionOf(Character.toLowerCase(ch));
+            if(dir < 0) throw new RuntimeException("Invalid char in solution at " + i + "=" + ch);
+            byte action = ActionRecord.encode(Character.isUpperCase(ch), dir);
+            for(int r = Math.max(1, repeat); r > 0; r--, count++)
+                if(!sink.accept(action)) return count + 1;
+            repeat = 0;
+        }
+        if(repeat != 0) throw new RuntimeException("Solution ends with a repeat count and no step");
+        return count;
+    }
+
+    /**
+     * Get the direction index of a lower case LURD letter
+     * @return Direction index, or -1 if it is not a LURD letter
+     */
+    private static int directionOf(char ch) {
+        for(int dir = 0; dir < LURD.length; dir++)
+            if(LURD[dir] == ch) return dir;
+        return -1;
+    }
+
+    /**
+     * Write actions in the binary format
+     * @param out Stream to write to
+     * @param actions Encoded actions
+     * @param length Number of actions to write from the start of the array
+     * @throws IOException If the stream could not be written
+     */
+    public static void writeBinary(DataOutputStream out, byte[] actions, int length) throws IOException {
+        out.writeInt(length);
+        for(int i = 0; i < length; i += 4) {
+            int packed = 0;
+            for(int j = 0; j < 4 && i + j < length; j++)
+                packed |= ActionRecord.direction(actions[i + j]) << (j * 2);
+            out.write(packed);
+        }
+    }
+
+    /**
+     * Read one solution in the binary format. Every action is given as a move,
+     * as the format does not say which steps are pushes.
+     * @param in Stream to read from, left at the start of the next solution
+     * @param sink Receives each action in order
+     * @return Number of actions read, or -1 if the stream had no more solutions
+     * @throws IOException If the stream could not be read or ended part way through a solution
+     */
+    public static int readBinary(DataInputStream in, ActionSink sink) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch(EOFException e) {
+            return -1; //No more solutions
+        }
+        if(length < 0) throw new IOException("Invalid solution length " + length);
+
+        boolean accepting = true;
+        for(int i = 0; i < length; i += 4) {
+            int packed = in.readUnsignedByte(); //Always read the whole solution so the stream stays in step
+            for(int j = 0; j < 4 && i + j < length && accepting; j++)
+                accepting = sink.accept(ActionRecord.encode(false, packed >> (j * 2)));
+        }
+        return length;
+    }
+}
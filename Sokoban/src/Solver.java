@@ -0,0 +1,375 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the shortest sequence of pushes that solves a warehouse.
+ * This is an A* search over box configurations. Walking between pushes is free,
+ * so a state is the sorted box positions plus the smallest index the worker can reach.
+ * States are deduplicated in a Zobrist-hashed StateTable, and the search is guided by
+ * the box-to-shelf lower bound from SolverLevel.
+ */
+public class Solver {
+    public static final int SOLVED = 0;     //A solution was found
+    public static final int UNSOLVABLE = 1; //Every reachable state was searched without finding a solution
+    public static final int LIMIT = 2;      //The search stopped at the node limit
+    public static final int TIMEOUT = 3;    //The search stopped at the time limit
+    public static final int OUT_OF_MEMORY = 4; //The search stopped at the memory limit
+    public static final int CANCELLED = 5;  //The search was stopped by cancel
+
+    public static final long DEFAULT_NODE_LIMIT = 2000000; //Default maximum number of states to expand
+
+    private final SolverLevel level;    //Static data of the level being solved
+    private final Board start;          //Board the search starts from
+    private final int startWorker;      //Board index of the worker at the start
+    private final int boxCount;         //Number of boxes in every state
+    private long nodeLimit = DEFAULT_NODE_LIMIT;
+    private long timeLimitNanos;        //Longest the search may run, 0 for no limit
+    private long memoryLimit;           //Most bytes the state table and open list may use, 0 for no limit
+    private volatile boolean cancelled; //Set by cancel, from any thread
+
+    private StateTable table;           //Every state seen so far
+    private PriorityHeap open;          //States waiting to be expanded, keyed by estimated total pushes
+
+    private int status = -1;            //Result of the last search
+    private int[] solution;             //Pushes of the solution found, see packPush
+    private long nodesExpanded;         //Number of states expanded by the last search
+    private long elapsedNanos;          //Running time of the last search
+    private long peakMemory;            //Most heap memory seen in use during the last search
+    private long searchMemory;          //Most bytes used by the state table and open list during the last search
+    private boolean tableFull;          //Set when a state could not be added within the memory limit
+
+    /**
+     * Constructor
+     * @param board Board to solve, it is not changed
+     * @param worker Board index of the worker
+     */
+    public Solver(Board board, int worker) {
+        this(new SolverLevel(board), board, worker);
+    }
+
+    /**
+     * Constructor for a level that has already been precomputed
+     * @param level Static data of the level
+     * @param board Board to solve, it is not changed
+     * @param worker Board index of the worker
+     */
+    public Solver(SolverLevel level, Board board, int worker) {
+        this.level = level;
+        this.start = new Board(board);
+        this.startWorker = worker;
+        this.boxCount = board.getBoxCount();
+    }
+
+    /**
+     * Set the maximum number of states to expand before giving up
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Set the longest time the search may run before giving up
+     * @param millis Time limit in milliseconds, 0 for no limit
+     */
+    public void setTimeLimit(long millis) {
+        this.timeLimitNanos = millis * 1000000;
+    }
+
+    /**
+     * Set the most memory the search's own states may use before giving up.
+     * This counts only this search, so it works when several searches share the heap.
+     * @param bytes Memory limit in bytes, 0 for no limit
+     */
+    public void setMemoryLimit(long bytes) {
+        this.memoryLimit = bytes;
+    }
+
+    /**
+     * Get a memory limit for one of a number of searches sharing the heap.
+     * A quarter of the heap is left for everything else, such as the game and the GC's headroom.
+     * @param searches Number of searches running at once
+     * @return Memory limit in bytes for each search
+     */
+    public static long memoryShare(int searches) {
+        return Runtime.getRuntime().maxMemory() / 4 * 3 / Math.max(1, searches);
+    }
+
+    /**
+     * Stop the search soon, from any thread. It returns CANCELLED.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Pack a push into an int
+     * @param box Board index of the box before the push
+     * @param dir Index of the direction in GameEngine.CROSS_OFFSETS
+     */
+    public static int packPush(int box, int dir) {
+        return (box << 2) | dir;
+    }
+
+    /**
+     * @return Board index of the box before a packed push
+     */
+    public static int pushBox(int push) {
+        return push >>> 2;
+    }
+
+    /**
+     * @return Direction index of a packed push
+     */
+    public static int pushDir(int push) {
+        return push & 3;
+    }
+
+    /**
+     * Run the search
+     * @return SOLVED, UNSOLVABLE, or LIMIT, TIMEOUT, OUT_OF_MEMORY or CANCELLED if it gave up
+     */
+    public int solve() {
+        long startTime = System.nanoTime();
+        table = new StateTable(boxCount);
+        table.setMemoryLimit(memoryLimit);
+        open = new PriorityHeap();
+        nodesExpanded = 0;
+        peakMemory = usedMemory();
+        searchMemory = 0;
+        solution = null;
+
+        status = search(boxesOf(start), startTime);
+        elapsedNanos = System.nanoTime() - startTime;
+        peakMemory = Math.max(peakMemory, usedMemory());
+        table = null; //Let the states be collected, the solution has been kept
+        open = null;
+        return status;
+    }
+
+    /**
+     * The A* loop
+     * @param startBoxes Sorted box indices at the start
+     * @param startTime Value of System.nanoTime when the search started
+     * @return SOLVED, UNSOLVABLE, or the limit that stopped it
+     */
+    private int search(int[] startBoxes, long startTime) {
+        int startBound = level.lowerBound(startBoxes);
+        if(startBound == SolverLevel.UNREACHABLE) return UNSOLVABLE;
+
+        PushExpander expander = new PushExpander(level);
+        int worker = expander.normalize(startBoxes, startWorker);
+        int startId = table.add(startBoxes, worker, expander.hash(startBoxes, worker), -1, -1, 0);
+        open.add(PriorityHeap.pack(startBound, startId));
+
+        int[] boxes = new int[boxCount];
+        while(!open.isEmpty())
+        {
+            long key = open.poll();
+            final int id = PriorityHeap.id(key);
+            table.getBoxes(id, boxes);
+            final int cost = table.getCost(id);
+            int bound = level.lowerBound(boxes);
+            if(PriorityHeap.priority(key) != cost + bound) continue; //Stale entry, the state was reached more cheaply since
+
+            if(bound == 0 && level.isSolved(boxes)) {
+                solution = buildSolution(id);
+                return SOLVED;
+            }
+            if(nodesExpanded >= nodeLimit) return LIMIT;
+            nodesExpanded++;
+            if((nodesExpanded & 0x3FF) == 0) { //Check the other limits now and then, they cost more than the node count
+                if((nodesExpanded & 0xFFF) == 0)
+                    peakMemory = Math.max(peakMemory, usedMemory());
+                searchMemory = Math.max(searchMemory, table.memoryBytes() + open.memoryBytes());
+                if(cancelled) return CANCELLED;
+                if(timeLimitNanos > 0 && System.nanoTime() - startTime > timeLimitNanos) return TIMEOUT;
+                if(memoryLimit > 0 && searchMemory > memoryLimit) return OUT_OF_MEMORY;
+                if(memoryLimit > 0) //The table checks before it grows, leaving room for the open list to double too
+                    table.setMemoryLimit(Math.max(1, memoryLimit - 3 * open.memoryBytes()));
+            }
+
+            tableFull = false;
+            expander.expand(boxes, table.getWorker(id), (child, childWorker, childHash, push, childBound) -> {
+                int childId = table.find(child, childWorker, childHash);
+                if(childId < 0) {
+                    childId = table.add(child, childWorker, childHash, id, push, cost + 1);
+                    if(childId < 0) { //Out of room for states
+                        tableFull = true;
+                        return;
+                    }
+                }
+                else if(table.getCost(childId) > cost + 1)
+                    table.update(childId, id, push, cost + 1);
+                else
+                    return; //Already reached at least as cheaply
+                open.add(PriorityHeap.pack(cost + 1 + childBound, childId));
+            });
+            if(tableFull) {
+                searchMemory = Math.max(searchMemory, table.memoryBytes() + open.memoryBytes());
+                return OUT_OF_MEMORY;
+            }
+        }
+        return UNSOLVABLE;
+    }
+
+    /**
+     * Get the sorted board indices of the boxes on a board
+     */
+    public static int[] boxesOf(Board board) {
+        int[] boxes = new int[board.getBoxCount()];
+        for(int i = 0, b = 0; i < board.size(); i++)
+            if(board.hasBox(i)) boxes[b++] = i;
+        return boxes;
+    }
+
+    /**
+     * Follow the parents back from the solved state to list the pushes in order
+     */
+    private int[] buildSolution(int id) {
+        int[] pushes = new int[table.getCost(id)];
+        for(int i = pushes.length - 1; i >= 0; i--, id = table.getParent(id))
+            pushes[i] = table.getPush(id);
+        return pushes;
+    }
+
+    /**
+     * @return Heap memory currently in use
+     */
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return Result of the last search, or -1 if it has not been run
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The pushes of the solution, see packPush, or null if there is none
+     */
+    public int[] getSolution() {
+        return solution;
+    }
+
+    /**
+     * Expand the solution into every step the worker takes, walking between pushes
+     * by the shortest route.
+     * @return Directions of every move and push in order, or null if there is no solution
+     */
+    public List<String> getMoves() {
+        if(solution == null) return null;
+        return expandMoves(level, start, startWorker, solution);
+    }
+
+    /**
+     * Expand a list of pushes into every step the worker takes, walking between pushes
+     * by the shortest route.
+     * @param level Static data of the level
+     * @param start Board the pushes start from, it is not changed
+     * @param startWorker Board index of the worker at the start
+     * @param pushes Pushes in order, see packPush
+     * @return Directions of every move and push in order
+     */
+    public static List<String> expandMoves(SolverLevel level, Board start, int startWorker, int[] pushes) {
+        Board board = new Board(start);
+        List<String> moves = new ArrayList<>();
+        int worker = startWorker;
+        for(int push : pushes) {
+            int box = pushBox(push);
+            int dir = pushDir(push);
+            int behind = level.neighbour(box, (dir + 2) % 4);
+            walk(level, board, worker, behind, moves);
+            moves.add(GameEngine.CROSS_OFFSET_NAMES[dir]);
+            board.moveBox(box, level.neighbour(box, dir));
+            worker = box;
+        }
+        return moves;
+    }
+
+    /**
+     * Add the steps of the shortest route between two cells to a list of moves
+     */
+    private static void walk(SolverLevel level, Board board, int from, int to, List<String> moves) {
+        int[] parents = new int[board.size()];
+        Arrays.fill(parents, -1);
+        int[] cells = new int[board.size()];
+        int head = 0, tail = 0;
+        parents[from] = from;
+        cells[tail++] = from;
+        while(head < tail && parents[to] == -1) {
+            int cell = cells[head++];
+            for(int dir = 0; dir < 4; dir++) {
+                int next = level.neighbour(cell, dir);
+                if(next < 0 || parents[next] != -1 || !board.isFree(next)) continue;
+                parents[next] = cell;
+                cells[tail++] = next;
+            }
+        }
+        List<String> route = new ArrayList<>();
+        for(int cell = to; cell != from; cell = parents[cell]) {
+            for(int dir = 0; dir < 4; dir++)
+                if(level.neighbour(parents[cell], dir) == cell)
+                    route.add(GameEngine.CROSS_OFFSET_NAMES[dir]);
+        }
+        for(int i = route.size() - 1; i >= 0; i--)
+            moves.add(route.get(i));
+    }
+
+    /**
+     * @return Number of states expanded by the last search
+     */
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    /**
+     * @return Running time of the last search in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    /**
+     * @return States expanded per second by the last search
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodesExpanded * 1000000000L / elapsedNanos;
+    }
+
+    /**
+     * @return Most heap memory seen in use during the last search, in bytes
+     */
+    public long getPeakMemory() {
+        return peakMemory;
+    }
+
+    /**
+     * @return Most bytes used by the state table and open list during the last search, checked now and then
+     */
+    public long getSearchMemory() {
+        return searchMemory;
+    }
+
+    /**
+     * @return A one line summary of the last search
+     */
+    public String getReport() {
+        String result = status == SOLVED ? "Solved in " + solution.length + " pushes"
+                : status == UNSOLVABLE ? "No solution"
+                : status == TIMEOUT ? "Gave up after " + timeLimitNanos / 1000000 + " ms"
+                : status == OUT_OF_MEMORY ? "Gave up at " + memoryLimit / (1024 * 1024) + " MB of states"
+                : status == CANCELLED ? "Cancelled" : "Gave up after " + nodeLimit + " nodes";
+        return String.format("%s: %d nodes expanded in %d ms (%d nodes/s), peak memory %d MB",
+                result, nodesExpanded, getElapsedMillis(), getNodesPerSecond(), peakMemory / (1024 * 1024));
+    }
+}
@@ -0,0 +1,218 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The parts of a level that do not change during a search:
+ * the walls, the shelves, the adjacent cells of every cell, the push distance
+ * from every cell to every shelf and the Zobrist keys used to hash states.
+ * Built once per level and shared by every search of it.
+ */
+public class SolverLevel {
+    public static final int UNREACHABLE = Integer.MAX_VALUE; //Push distance of a cell that cannot reach a shelf
+
+    private final int size;             //Number of cells on the board
+    private final boolean[] walls;      //Cells the worker and boxes can never enter
+    private final boolean[] shelves;    //Cells that are shelves
+    private final int[] shelfIndices;   //Board indices of the shelves
+    private final int[] neighbours;     //Adjacent cell of each cell in each direction, cell * 4 + dir, -1 if off the board
+    private final int[][] shelfDistance; //Pushes needed to move a box from each cell to each shelf, ignoring other boxes
+    private final int[] minDistance;    //Pushes needed to move a box from each cell to its nearest shelf
+    private final long[] boxKeys;       //Zobrist key for a box on each cell
+    private final long[] workerKeys;    //Zobrist key for the normalized worker on each cell
+    private final int boxCount;         //Number of boxes in the level
+    private final DeadlockDetector deadlocks; //Dead squares of the level
+
+    /**
+     * Constructor, precomputes the level from a board
+     * @param board The board, boxes on it are only counted
+     */
+    public SolverLevel(Board board) {
+        size = board.size();
+        boxCount = board.getBoxCount();
+        walls = new boolean[size];
+        shelves = new boolean[size];
+        int shelfCount = 0;
+        for(int i = 0; i < size; i++) {
+            walls[i] = !board.contains(board.rowOf(i), board.colOf(i)) || board.isWall(i);
+            shelves[i] = board.isShelf(i);
+            if(shelves[i]) shelfCount++;
+        }
+        shelfIndices = new int[shelfCount];
+        for(int i = 0, s = 0; i < size; i++)
+            if(shelves[i]) shelfIndices[s++] = i;
+
+        neighbours = new int[size * 4];
+        for(int i = 0; i < size; i++) {
+            for(int dir = 0; dir < 4; dir++) {
+                int row = board.rowOf(i) + GameEngine.CROSS_OFFSETS[dir][1];
+                int col = board.colOf(i) + GameEngine.CROSS_OFFSETS[dir][0];
+                neighbours[i * 4 + dir] = board.contains(row, col) ? board.index(row, col) : -1;
+            }
+        }
+
+        shelfDistance = new int[shelfCount][];
+        minDistance = new int[size];
+        Arrays.fill(minDistance, UNREACHABLE);
+        for(int s = 0; s < shelfCount; s++) {
+            shelfDistance[s] = pullDistances(shelfIndices[s]);
+            for(int i = 0; i < size; i++)
+                minDistance[i] = Math.min(minDistance[i], shelfDistance[s][i]);
+        }
+
+        deadlocks = new DeadlockDetector(board);
+
+        Random random = new Random(size * 31L + shelfCount); //Fixed seed so hashes are repeatable between runs
+        boxKeys = new long[size];
+        workerKeys = new long[size];
+        for(int i = 0; i < size; i++) {
+            boxKeys[i] = random.nextLong();
+            workerKeys[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Work out how many pushes it takes to move a box from every cell to a shelf,
+     * by pulling a box backwards from the shelf. Other boxes are ignored.
+     * @param shelf Board index of the shelf
+     * @return Distance for each cell, UNREACHABLE if a box there can never reach the shelf
+     */
+    private int[] pullDistances(int shelf) {
+        int[] distance = new int[size];
+        Arrays.fill(distance, UNREACHABLE);
+        int[] queue = new int[size];
+        int head = 0, tail = 0;
+        distance[shelf] = 0;
+        queue[tail++] = shelf;
+        while(head < tail) {
+            int box = queue[head++];
+            for(int dir = 0; dir < 4; dir++) {
+                int from = neighbours[box * 4 + dir];               //Where the box would have been pushed from
+                if(from < 0 || walls[from] || distance[from] != UNREACHABLE) continue;
+                int worker = neighbours[from * 4 + dir];            //Where the worker stood to push it
+                if(worker < 0 || walls[worker]) continue;
+                distance[from] = distance[box] + 1;
+                queue[tail++] = from;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * A lower bound on the pushes needed to put boxes on the shelves, from a relaxed
+     * box-to-shelf matching: every shelf needs some box moved onto it and, when there are
+     * as many boxes as shelves, every box needs to reach some shelf. Both sums are no more
+     * than the cost of the best one-to-one matching, so the larger of them is used.
+     * @param boxes Board indices of the boxes
+     * @return Lower bound, or UNREACHABLE if a box or shelf can never be matched
+     */
+    public int lowerBound(int[] boxes) {
+        long shelfSum = 0;
+        for(int s = 0; s < shelfIndices.length; s++) {
+            int best = UNREACHABLE;
+            for(int box : boxes)
+                best = Math.min(best, shelfDistance[s][box]);
+            if(best == UNREACHABLE) return UNREACHABLE;
+            shelfSum += best;
+        }
+        if(boxes.length != shelfIndices.length) //Spare boxes do not need to reach a shelf
+            return (int) shelfSum;
+
+        long boxSum = 0;
+        for(int box : boxes) {
+            if(minDistance[box] == UNREACHABLE) return UNREACHABLE;
+            boxSum += minDistance[box];
+        }
+        return (int) Math.max(shelfSum, boxSum);
+    }
+
+    /**
+     * Check that every shelf has a box on it
+     * @param boxes Board indices of the boxes
+     */
+    public boolean isSolved(int[] boxes) {
+        int onShelves = 0;
+        for(int box : boxes)
+            if(shelves[box]) onShelves++;
+        return onShelves == shelfIndices.length;
+    }
+
+    /**
+     * @return Number of cells on the board
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of boxes in the level
+     */
+    public int getBoxCount() {
+        return boxCount;
+    }
+
+    /**
+     * @return Board indices of the shelves
+     */
+    public int[] getShelves() {
+        return shelfIndices;
+    }
+
+    /**
+     * Is the cell a wall or outside the warehouse?
+     */
+    public boolean isWall(int index) {
+        return walls[index];
+    }
+
+    /**
+     * Is the cell a shelf?
+     */
+    public boolean isShelf(int index) {
+        return shelves[index];
+    }
+
+    /**
+     * Get the adjacent cell in a direction
+     * @param index Board index of the cell
+     * @param dir Index of the direction in GameEngine.CROSS_OFFSETS
+     * @return Board index of the adjacent cell, or -1 if it is off the board
+     */
+    public int neighbour(int index, int dir) {
+        return neighbours[index * 4 + dir];
+    }
+
+    /**
+     * Pushes needed to move a box from a cell to its nearest shelf, ignoring other boxes
+     * @return Distance, or UNREACHABLE if a box there can never reach a shelf
+     */
+    public int distanceToShelf(int index) {
+        return minDistance[index];
+    }
+
+    /**
+     * @return Deadlock detector for the level, copy it before use on another thread
+     */
+    public DeadlockDetector getDeadlocks() {
+        return deadlocks;
+    }
+
+    /**
+     * @return Zobrist key for a box on a cell
+     */
+    public long boxKey(int index) {
+        return boxKeys[index];
+    }
+
+    /**
+     * @return Zobrist key for the normalized worker on a cell
+     */
+    public long workerKey(int index) {
+        return workerKeys[index];
+    }
+}
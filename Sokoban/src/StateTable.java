@@ -0,0 +1,215 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.util.Arrays;
+
+/**
+ * Table of search states for the solver.
+ * A state is the sorted board indices of the boxes plus the normalized worker
+ * position (the smallest index the worker can reach). States are stored packed
+ * in one int array and looked up by their Zobrist hash with open addressing,
+ * so each state costs a few ints rather than an object.
+ * Each state also records the state it was reached from, the push used to
+ * reach it and its cost in pushes.
+ */
+public class StateTable {
+    private final int boxCount; //Number of boxes in every state
+    private final int stride;   //Ints per state: the boxes then the worker
+
+    private int[] states;       //Packed states, state id * stride
+    private long[] hashes;      //Zobrist hash of each state
+    private int[] parents;      //Id of the state each state was reached from, -1 for the start
+    private int[] pushes;       //Push used to reach each state, see Solver.packPush
+    private int[] costs;        //Number of pushes from the start to each state
+    private int count;          //Number of states stored
+    private long memoryLimit;   //Most bytes the table may use while it grows, 0 for no limit
+
+    private int[] slots;        //Open addressing table of state id + 1, 0 for an empty slot
+    private int mask;           //slots.length - 1, slots.length is a power of two
+
+    /**
+     * Constructor
+     * @param boxCount Number of boxes in every state
+     */
+    public StateTable(int boxCount) {
+        this.boxCount = boxCount;
+        this.stride = boxCount + 1;
+        int capacity = 1024;
+        states = new int[capacity * stride];
+        hashes = new long[capacity];
+        parents = new int[capacity];
+        pushes = new int[capacity];
+        costs = new int[capacity];
+        slots = new int[capacity * 2];
+        mask = slots.length - 1;
+    }
+
+    /**
+     * Set the most memory the table may use. Growing copies every array, so while it grows
+     * the old and new arrays both count towards the limit.
+     * @param bytes Memory limit in bytes, 0 for no limit
+     */
+    public void setMemoryLimit(long bytes) {
+        this.memoryLimit = bytes;
+    }
+
+    /**
+     * Find a state in the table
+     * @param boxes Sorted box indices
+     * @param worker Normalized worker index
+     * @param hash Zobrist hash of the state
+     * @return Id of the state, or -1 if it is not in the table
+     */
+    public int find(int[] boxes, int worker, long hash) {
+        for(int slot = slotOf(hash); slots[slot] != 0; slot = (slot + 1) & mask) //Linear probe until an empty slot
+        {
+            int id = slots[slot] - 1;
+            if(hashes[id] == hash && matches(id, boxes, worker))
+                return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Add a state that is not already in the table
+     * @param boxes Sorted box indices
+     * @param worker Normalized worker index
+     * @param hash Zobrist hash of the state
+     * @param parent Id of the state it was reached from, or -1
+     * @param push Push used to reach it
+     * @param cost Number of pushes from the start
+     * @return Id of the new state, or -1 if the table is full and growing it would pass the memory limit
+     */
+    public int add(int[] boxes, int worker, long hash, int parent, int push, int cost) {
+        if(count == hashes.length && !grow())
+            return -1;
+
+        int id = count++;
+        System.arraycopy(boxes, 0, states, id * stride, boxCount);
+        states[id * stride + boxCount] = worker;
+        hashes[id] = hash;
+        parents[id] = parent;
+        pushes[id] = push;
+        costs[id] = cost;
+        insertSlot(id);
+        return id;
+    }
+
+    /**
+     * Copy the boxes of a state into an array
+     * @param id Id of the state
+     * @param into Array of at least the number of boxes
+     */
+    public void getBoxes(int id, int[] into) {
+        System.arraycopy(states, id * stride, into, 0, boxCount);
+    }
+
+    /**
+     * @return Normalized worker index of a state
+     */
+    public int getWorker(int id) {
+        return states[id * stride + boxCount];
+    }
+
+    /**
+     * @return Zobrist hash of a state
+     */
+    public long getHash(int id) {
+        return hashes[id];
+    }
+
+    /**
+     * @return Id of the state a state was reached from, or -1
+     */
+    public int getParent(int id) {
+        return parents[id];
+    }
+
+    /**
+     * @return Push used to reach a state
+     */
+    public int getPush(int id) {
+        return pushes[id];
+    }
+
+    /**
+     * @return Number of pushes from the start to a state
+     */
+    public int getCost(int id) {
+        return costs[id];
+    }
+
+    /**
+     * Record a cheaper way of reaching a state
+     */
+    public void update(int id, int parent, int push, int cost) {
+        parents[id] = parent;
+        pushes[id] = push;
+        costs[id] = cost;
+    }
+
+    /**
+     * @return Number of states stored
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return Approximate memory used by the table in bytes
+     */
+    public long memoryBytes() {
+        return 4L * states.length + 8L * hashes.length + 12L * parents.length + 4L * slots.length;
+    }
+
+    /**
+     * Check whether a stored state is equal to a state
+     */
+    private boolean matches(int id, int[] boxes, int worker) {
+        int base = id * stride;
+        if(states[base + boxCount] != worker) return false;
+        for(int i = 0; i < boxCount; i++)
+            if(states[base + i] != boxes[i]) return false;
+        return true;
+    }
+
+    /**
+     * Get the first slot to probe for a hash
+     */
+    private int slotOf(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * Put a state id in the first free slot for its hash
+     */
+    private void insertSlot(int id) {
+        int slot = slotOf(hashes[id]);
+        while(slots[slot] != 0)
+            slot = (slot + 1) & mask;
+        slots[slot] = id + 1;
+    }
+
+    /**
+     * Double the capacity of the table and rehash every state, unless that would pass the memory limit
+     * @return False if the table was not grown
+     */
+    private boolean grow() {
+        if(memoryLimit > 0 && memoryBytes() * 3 > memoryLimit) return false; //Old arrays plus new arrays twice the size
+        int capacity = hashes.length * 2;
+        states = Arrays.copyOf(states, capacity * stride);
+        hashes = Arrays.copyOf(hashes, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        pushes = Arrays.copyOf(pushes, capacity);
+        costs = Arrays.copyOf(costs, capacity);
+
+        slots = new int[capacity * 2]; //Keep the load factor at or below a half
+        mask = slots.length - 1;
+        for(int id = 0; id < count; id++)
+            insertSlot(id);
+        return true;
+    }
+}
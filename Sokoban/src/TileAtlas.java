@@ -0,0 +1,85 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ * Every tile image, read once and scaled to the cell size, side by side in one image.
+ * Tiles are numbered by the constants below, so drawing one is a copy of a square of the
+ * atlas, with no file name to build, no lookup by name and no scaling.
+ */
+public class TileAtlas {
+    public static final int EMPTY = 0;          //Floor with nothing on it
+    public static final int WALL = 1;           //Wall
+    public static final int SHELF = 2;          //Shelf without a box
+    public static final int BOX = 3;            //Box on the floor
+    public static final int BOX_ON_SHELF = 4;   //Box on a shelf
+    public static final int WORKER = 5;         //Worker facing up, add a direction index for the other ways
+
+    private static final String[] FILES = { //Image of each tile, in tile number order
+            "empty", "wall", "shelf", "box", "boxOnShelf",
+            "worker-up", "worker-right", "worker-down", "worker-left"
+    };
+
+    private final BufferedImage atlas;  //All the tiles in a row, each cellSize square
+    private final int cellSize;         //Width and height of a tile in pixels
+
+    /**
+     * Read and scale every tile
+     * @param directory Directory holding the .gif files
+     * @param cellSize Width and height to scale each tile to
+     * @throws IOException If an image could not be read
+     */
+    public TileAtlas(File directory, int cellSize) throws IOException {
+        this.cellSize = cellSize;
+        atlas = new BufferedImage(FILES.length * cellSize, cellSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        for(int tile = 0; tile < FILES.length; tile++) {
+            File file = new File(directory, FILES[tile] + ".gif");
+            Image image = ImageIO.read(file);
+            if(image == null) throw new IOException("Not an image: " + file);
+            g.drawImage(image, tile * cellSize, 0, cellSize, cellSize, null);
+        }
+        g.dispose();
+    }
+
+    /**
+     * @return Width and height of a tile in pixels
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Get the tile for a cell of a board
+     * @param board The board
+     * @param index Board index of the cell
+     * @return Tile number, or -1 for a cell outside the warehouse
+     */
+    public static int tileOf(Board board, int index) {
+        if(board.isOutside(index)) return -1;
+        if(board.isWall(index)) return WALL;
+        if(board.hasBox(index)) return board.isShelf(index) ? BOX_ON_SHELF : BOX;
+        return board.isShelf(index) ? SHELF : EMPTY;
+    }
+
+    /**
+     * Draw a tile
+     * @param g Graphics to draw on
+     * @param tile Tile number
+     * @param x X position of the top left of the tile
+     * @param y Y position of the top left of the tile
+     */
+    public void draw(Graphics g, int tile, int x, int y) {
+        int sx = tile * cellSize;
+        g.drawImage(atlas, x, y, x + cellSize, y + cellSize, sx, 0, sx + cellSize, cellSize, null);
+    }
+}
@@ -0,0 +1,166 @@
+/* Code for COMP103 - 2018T2, Assignment 1
+ * Name: Matthew Corfiatis
+ * Username: CorfiaMatt
+ * ID: 300447277
+ */
+
+import ecs100.UI;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the warehouse into an offscreen image and copies only the changed cells to the screen.
+ * Changes are marked as dirty cells as they happen, and flush draws the dirty cells into the
+ * offscreen image and copies just their rectangles to the UI canvas, repainting once.
+ * The work per frame depends on how many cells changed, not on the size of the board.
+ * Tiles are copied from a TileAtlas, so drawing a cell never looks up or scales an image.
+ * Also keeps which cells are selected for auto-move, as they are drawn with a red outline.
+ */
+public class WarehouseRenderer {
+    private final GameEngine engine;    //Engine of the game being drawn, for the board and worker
+    private final int left;             //X position of the warehouse on the canvas
+    private final int top;              //Y position of the warehouse on the canvas
+    private final int cellSize;         //Width and height of a cell in pixels
+    private final TileAtlas atlas;      //Tile images, already scaled to the cell size
+
+    private Board board;                //Board being drawn
+    private BufferedImage buffer;       //The warehouse as last drawn, one cell per cellSize square
+    private Graphics2D bufferGraphics;  //Graphics for drawing into the buffer
+    private boolean[] selected;         //Cells selected for auto-move, indexed like the board
+    private int selectedCount;          //Number of selected cells
+    private boolean[] dirty;            //Cells that have changed since the last flush
+    private int[] dirtyCells;           //Board indices of the dirty cells, in the order they were marked
+    private int dirtyCount;             //Number of dirty cells
+    private boolean boxesHidden;        //Whether boxes are drawn as the cell under them, for the win flicker
+
+    /**
+     * Constructor
+     * @param engine Engine of the game to draw
+     * @param left X position of the warehouse on the canvas
+     * @param top Y position of the warehouse on the canvas
+     * @param atlas Tile images, their size is the size of a cell
+     */
+    public WarehouseRenderer(GameEngine engine, int left, int top, TileAtlas atlas) {
+        this.engine = engine;
+        this.left = left;
+        this.top = top;
+        this.cellSize = atlas.getCellSize();
+        this.atlas = atlas;
+    }
+
+    /**
+     * A new board was loaded, size the offscreen image for it and mark every cell dirty
+     */
+    public void boardLoaded() {
+        board = engine.getBoard();
+        if(bufferGraphics != null) bufferGraphics.dispose();
+        buffer = new BufferedImage(board.getCols() * cellSize, board.getRows() * cellSize, BufferedImage.TYPE_INT_RGB);
+        bufferGraphics = buffer.createGraphics();
+        bufferGraphics.setStroke(new BasicStroke(2)); //Width of the selection outline
+        selected = new boolean[board.size()];
+        selectedCount = 0;
+        dirty = new boolean[board.size()];
+        dirtyCells = new int[board.size()];
+        dirtyCount = 0;
+        boxesHidden = false;
+        markAllDirty();
+    }
+
+    /**
+     * Mark a cell to be drawn again on the next flush
+     * @param index Board index of the cell
+     */
+    public void markDirty(int index) {
+        if(dirty[index]) return;
+        dirty[index] = true;
+        dirtyCells[dirtyCount++] = index;
+    }
+
+    /**
+     * Mark every cell to be drawn again on the next flush
+     */
+    public void markAllDirty() {
+        for(int i = 0; i < dirty.length; i++)
+            markDirty(i);
+    }
+
+    /**
+     * Select or deselect a cell for auto-move
+     * @param index Board index of the cell
+     * @param select New selection state
+     */
+    public void setSelected(int index, boolean select) {
+        if(selected[index] == select) return;
+        selected[index] = select;
+        selectedCount += select ? 1 : -1;
+        markDirty(index);
+    }
+
+    /**
+     * @return True if a cell is selected for auto-move
+     */
+    public boolean isSelected(int index) {
+        return selected[index];
+    }
+
+    /**
+     * Deselect every selected cell
+     */
+    public void clearSelection() {
+        for(int i = 0; i < selected.length && selectedCount > 0; i++)
+            setSelected(i, false);
+    }
+
+    /**
+     * Show or hide the boxes, for flickering them when a level is won
+     * @param hidden True to draw each box as the cell under it
+     */
+    public void setBoxesHidden(boolean hidden) {
+        if(boxesHidden == hidden) return;
+        boxesHidden = hidden;
+        for(int i = 0; i < dirty.length; i++)
+            if(board.hasBox(i)) markDirty(i);
+    }
+
+    /**
+     * Draw the dirty cells and copy them to the screen
+     */
+    public void flush() {
+        if(dirtyCount == 0) return;
+        Graphics2D screen = UI.getGraphics();
+        for(int i = 0; i < dirtyCount; i++) {
+            int index = dirtyCells[i];
+            dirty[index] = false;
+            int x = board.colOf(index) * cellSize;
+            int y = board.rowOf(index) * cellSize;
+            drawCell(index, x, y);
+            screen.drawImage(buffer, left + x, top + y, left + x + cellSize, top + y + cellSize,
+                             x, y, x + cellSize, y + cellSize, null);
+        }
+        dirtyCount = 0;
+        UI.repaintGraphics();
+    }
+
+    /**
+     * Draw a cell into the offscreen image, with the worker if it is there
+     */
+    private void drawCell(int index, int x, int y) {
+        int tile = TileAtlas.tileOf(board, index);
+        if(tile < 0) { //Nothing to draw outside the warehouse, leave it blank
+            bufferGraphics.setColor(Color.white);
+            bufferGraphics.fillRect(x, y, cellSize, cellSize);
+            return;
+        }
+        if(boxesHidden && board.hasBox(index))
+            tile = board.isShelf(index) ? TileAtlas.SHELF : TileAtlas.EMPTY;
+
+        atlas.draw(bufferGraphics, tile, x, y);
+        if(index == engine.getWorker())
+            atlas.draw(bufferGraphics, TileAtlas.WORKER + engine.getWorkerDirIndex(), x, y);
+        if(selected[index]) {
+            bufferGraphics.setColor(Color.red);
+            bufferGraphics.drawRect(x + 1, y + 1, cellSize - 2, cellSize - 2);
+        }
+    }
+}